@@ -0,0 +1,17 @@
+#!/bin/bash -e
+
+#
+# command line runner for the weather service benchmarks, any argument is passed to JMH
+# e.g. ./run-bench.sh WeatherQueryBenchmark -p airportCount=10000 -t 4
+#
+
+THIS_DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+pushd ${THIS_DIR}/../weather-dist > /dev/null
+mvn -q install -DskipTests
+popd > /dev/null
+
+pushd ${THIS_DIR} > /dev/null
+mvn -q package
+java -jar target/benchmarks.jar "$@"
+popd > /dev/null
@@ -0,0 +1,69 @@
+package com.crossover.trial.weather.bench;
+
+import com.crossover.trial.weather.entity.Airport;
+import com.crossover.trial.weather.repository.AirportRepository;
+import com.crossover.trial.weather.repository.factory.RepositoryFactory;
+import com.crossover.trial.weather.repository.factory.RepositoryType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Airport lookup by IATA code, for each repository implementation and catalogue size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AirportRepositoryBenchmark {
+    @Param({"IN_MEMORY", "FILE"})
+    public RepositoryType repositoryType;
+
+    @Param({"100", "1000", "10000"})
+    public int airportCount;
+
+    private AirportRepository airportRepository;
+
+    private String[] iataCodes;
+
+    /**
+     * journal directory of the FILE repository, null for the other types
+     */
+    private File repositoryDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (repositoryType == RepositoryType.FILE) {
+            repositoryDirectory = BenchmarkCatalogue.createRepositoryDirectory();
+        }
+        airportRepository = RepositoryFactory.getAirportRepository(repositoryType);
+        iataCodes = BenchmarkCatalogue.load(airportRepository, airportCount);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (repositoryDirectory != null) {
+            BenchmarkCatalogue.deleteRepositoryDirectory(repositoryDirectory);
+        }
+    }
+
+    @Benchmark
+    public Airport findAirport(BenchmarkCatalogue.Cursor cursor) {
+        return airportRepository.findAirport(iataCodes[cursor.next(iataCodes.length)]);
+    }
+}
@@ -0,0 +1,120 @@
+package com.crossover.trial.weather.bench;
+
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.repository.AirportRepository;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic airport catalogues and data points shared by the benchmarks. Catalogues are generated from a fixed seed
+ * so that every run and every implementation measures the same airports.
+ */
+public class BenchmarkCatalogue {
+    private static final long SEED = 42;
+
+    private static final int LETTERS = 26;
+
+    /**
+     * highest number of airports with distinct 3 letter codes
+     */
+    public static final int MAX_AIRPORTS = LETTERS * LETTERS * LETTERS;
+
+    private BenchmarkCatalogue() {
+    }
+
+    /**
+     * Replace the airports of the repository with a catalogue of airports spread over the inhabited latitudes
+     *
+     * @param airportRepository the repository to fill
+     * @param airportCount      number of airports, at most {@link #MAX_AIRPORTS}
+     * @return the IATA codes of the added airports
+     */
+    public static String[] load(AirportRepository airportRepository, int airportCount) {
+        if (airportCount > MAX_AIRPORTS) {
+            throw new IllegalArgumentException("at most " + MAX_AIRPORTS + " airports are supported");
+        }
+
+        Random random = new Random(SEED);
+        String[] iataCodes = new String[airportCount];
+
+        airportRepository.clear();
+        for (int i = 0; i < airportCount; i++) {
+            iataCodes[i] = iataCode(i);
+            airportRepository.addAirport(iataCodes[i], random.nextDouble() * 130 - 60, random.nextDouble() * 360 - 180);
+        }
+        return iataCodes;
+    }
+
+    /**
+     * Point the FILE repositories at a new temporary directory. The directory is read once by the JVM, so this must
+     * run before the first FILE repository is created, JMH forking a JVM for each parameter combination.
+     *
+     * @return the directory, to remove with {@link #deleteRepositoryDirectory(File)} once the benchmark is done
+     */
+    public static File createRepositoryDirectory() throws IOException {
+        File directory = Files.createTempDirectory("weather-bench").toFile();
+        System.setProperty("weather.repository.directory", directory.getPath());
+        return directory;
+    }
+
+    /**
+     * Remove a directory created by {@link #createRepositoryDirectory()} and the journal files in it
+     */
+    public static void deleteRepositoryDirectory(File directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * @return the i-th code of AAA, AAB, ... ZZZ
+     */
+    public static String iataCode(int i) {
+        char[] code = new char[3];
+        for (int position = code.length - 1; position >= 0; position--) {
+            code[position] = (char) ('A' + i % LETTERS);
+            i /= LETTERS;
+        }
+        return new String(code);
+    }
+
+    /**
+     * @return a data point accepted for the given type
+     */
+    public static DataPoint dataPoint(DataPointType pointType) {
+        int mean = pointType == DataPointType.PRESSURE ? 700 : 20;
+        return new DataPoint.Builder()
+                .withCount(10).withFirst(mean - 10).withMedian(mean).withLast(mean + 10).withMean(mean).build();
+    }
+
+    /**
+     * Per thread pseudo random sequence picking the airports and point types of the benchmark operations, cheaper
+     * and less contended than {@link Random}.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private long state = System.nanoTime() | 1;
+
+        /**
+         * @return a pseudo random number in [0, bound)
+         */
+        public int next(int bound) {
+            // xorshift64
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            return (int) ((state >>> 1) % bound);
+        }
+    }
+}
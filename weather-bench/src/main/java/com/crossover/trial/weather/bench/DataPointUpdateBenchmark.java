@@ -0,0 +1,68 @@
+package com.crossover.trial.weather.bench;
+
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.repository.factory.RepositoryFactory;
+import com.crossover.trial.weather.service.WeatherService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
+
+/**
+ * Data point collection by concurrent writers, override the number of writers with -t. With a single airport
+ * every writer contends on the same weather, with more airports the writes spread over the catalogue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class DataPointUpdateBenchmark {
+    private static final DataPointType[] POINT_TYPES = DataPointType.values();
+
+    @Param({"1", "100", "10000"})
+    public int airportCount;
+
+    private WeatherService weatherService;
+
+    private String[] iataCodes;
+
+    private String[] pointTypes;
+
+    private DataPoint[] dataPoints;
+
+    @Setup
+    public void setUp() throws Exception {
+        weatherService = new WeatherService();
+        iataCodes = BenchmarkCatalogue.load(RepositoryFactory.getAirportRepository(CURRENT_REPOSITORY_TYPE), airportCount);
+        RepositoryFactory.getAtmosphereRepository(CURRENT_REPOSITORY_TYPE).clear();
+
+        pointTypes = new String[POINT_TYPES.length];
+        dataPoints = new DataPoint[POINT_TYPES.length];
+        for (int i = 0; i < POINT_TYPES.length; i++) {
+            pointTypes[i] = POINT_TYPES[i].name().toLowerCase();
+            dataPoints[i] = BenchmarkCatalogue.dataPoint(POINT_TYPES[i]);
+        }
+    }
+
+    @Benchmark
+    public void addDataPoint(BenchmarkCatalogue.Cursor cursor) {
+        int type = cursor.next(pointTypes.length);
+        weatherService.addDataPoint(iataCodes[cursor.next(iataCodes.length)], pointTypes[type], dataPoints[type]);
+    }
+}
@@ -0,0 +1,78 @@
+package com.crossover.trial.weather.bench;
+
+import com.crossover.trial.weather.repository.FrequencyRepository;
+import com.crossover.trial.weather.repository.factory.RepositoryFactory;
+import com.crossover.trial.weather.repository.factory.RepositoryType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query statistics recorded by concurrent queries, override the number of queries with -t. The FILE repository
+ * type keeps the statistics in memory too, see {@link RepositoryFactory#getFrequencyRepository}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class FrequencyRepositoryBenchmark {
+    private static final double[] RADIUSES = {0, 10, 50, 100, 250, 1000, 5000, 20000};
+
+    @Param({"IN_MEMORY", "FILE"})
+    public RepositoryType repositoryType;
+
+    @Param({"100", "10000"})
+    public int airportCount;
+
+    private FrequencyRepository frequencyRepository;
+
+    private String[] iataCodes;
+
+    /**
+     * journal directory of the FILE repository, null for the other types
+     */
+    private File repositoryDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (repositoryType == RepositoryType.FILE) {
+            repositoryDirectory = BenchmarkCatalogue.createRepositoryDirectory();
+        }
+        frequencyRepository = RepositoryFactory.getFrequencyRepository(repositoryType);
+        frequencyRepository.clear();
+
+        iataCodes = new String[airportCount];
+        for (int i = 0; i < airportCount; i++) {
+            iataCodes[i] = BenchmarkCatalogue.iataCode(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (repositoryDirectory != null) {
+            BenchmarkCatalogue.deleteRepositoryDirectory(repositoryDirectory);
+        }
+    }
+
+    @Benchmark
+    public void update(BenchmarkCatalogue.Cursor cursor) {
+        frequencyRepository.update(iataCodes[cursor.next(iataCodes.length)], RADIUSES[cursor.next(RADIUSES.length)]);
+    }
+}
@@ -0,0 +1,66 @@
+package com.crossover.trial.weather.bench;
+
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.repository.FrequencyRepository;
+import com.crossover.trial.weather.repository.factory.RepositoryFactory;
+import com.crossover.trial.weather.service.WeatherService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
+
+/**
+ * Health status of the query ping, with every airport having weather and query statistics. The cached status is
+ * what clients get between two refreshes, the uncached one is the cost of each refresh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HealthStatusBenchmark {
+    @Param({"1000", "10000"})
+    public int airportCount;
+
+    private WeatherService weatherService;
+
+    @Setup
+    public void setUp() throws Exception {
+        weatherService = new WeatherService();
+        String[] iataCodes =
+                BenchmarkCatalogue.load(RepositoryFactory.getAirportRepository(CURRENT_REPOSITORY_TYPE), airportCount);
+
+        RepositoryFactory.getAtmosphereRepository(CURRENT_REPOSITORY_TYPE).clear();
+        FrequencyRepository frequencyRepository = RepositoryFactory.getFrequencyRepository(CURRENT_REPOSITORY_TYPE);
+        frequencyRepository.clear();
+
+        for (int i = 0; i < iataCodes.length; i++) {
+            weatherService.addDataPoint(iataCodes[i], DataPointType.WIND.name(), BenchmarkCatalogue.dataPoint(DataPointType.WIND));
+            frequencyRepository.update(iataCodes[i], (double) (i % 500));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> getHealthStatus() {
+        return weatherService.getHealthStatus();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dweather.health.refreshInterval=0")
+    public Map<String, Object> getHealthStatus_uncached() {
+        return weatherService.getHealthStatus();
+    }
+}
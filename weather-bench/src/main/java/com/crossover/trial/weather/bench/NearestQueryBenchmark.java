@@ -0,0 +1,72 @@
+package com.crossover.trial.weather.bench;
+
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.entity.AirportWeather;
+import com.crossover.trial.weather.entity.WeatherEstimate;
+import com.crossover.trial.weather.repository.factory.RepositoryFactory;
+import com.crossover.trial.weather.service.WeatherService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
+
+/**
+ * Nearest airports around an airport and weather estimate at a random position of the inhabited latitudes. Every
+ * airport has wind, one in two temperature, so the search for temperature goes further.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestQueryBenchmark {
+    @Param({"1000", "10000"})
+    public int airportCount;
+
+    @Param({"1", "4", "16"})
+    public int neighbours;
+
+    private WeatherService weatherService;
+
+    private String[] iataCodes;
+
+    @Setup
+    public void setUp() throws Exception {
+        weatherService = new WeatherService();
+        iataCodes = BenchmarkCatalogue.load(RepositoryFactory.getAirportRepository(CURRENT_REPOSITORY_TYPE), airportCount);
+
+        RepositoryFactory.getAtmosphereRepository(CURRENT_REPOSITORY_TYPE).clear();
+        for (int i = 0; i < iataCodes.length; i++) {
+            weatherService.addDataPoint(iataCodes[i], DataPointType.WIND.name(), BenchmarkCatalogue.dataPoint(DataPointType.WIND));
+            if (i % 2 == 0) {
+                weatherService.addDataPoint(iataCodes[i], DataPointType.TEMPERATURE.name(),
+                        BenchmarkCatalogue.dataPoint(DataPointType.TEMPERATURE));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<AirportWeather> getNearestWeather(BenchmarkCatalogue.Cursor cursor) {
+        return weatherService.getNearestWeather(iataCodes[cursor.next(iataCodes.length)], neighbours, "temperature", null);
+    }
+
+    @Benchmark
+    public WeatherEstimate getWeatherEstimate(BenchmarkCatalogue.Cursor cursor) {
+        double latitude = cursor.next(13000) / 100.0 - 60;
+        double longitude = cursor.next(36000) / 100.0 - 180;
+        return weatherService.getWeatherEstimate(latitude, longitude, neighbours, TimeUnit.DAYS.toMillis(1));
+    }
+}
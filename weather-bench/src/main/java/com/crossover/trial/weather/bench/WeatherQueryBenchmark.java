@@ -0,0 +1,60 @@
+package com.crossover.trial.weather.bench;
+
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.entity.AtmosphericInformation;
+import com.crossover.trial.weather.repository.factory.RepositoryFactory;
+import com.crossover.trial.weather.service.WeatherService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
+
+/**
+ * Weather query around an airport, every airport of the catalogue having weather. Radius 0 is the single airport
+ * lookup, the larger radiuses return more airports: about 8 for 1000 KM and 150 for 5000 KM per 1000 airports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherQueryBenchmark {
+    @Param({"1000", "10000"})
+    public int airportCount;
+
+    @Param({"0", "100", "1000", "5000"})
+    public double radius;
+
+    private WeatherService weatherService;
+
+    private String[] iataCodes;
+
+    @Setup
+    public void setUp() throws Exception {
+        weatherService = new WeatherService();
+        iataCodes = BenchmarkCatalogue.load(RepositoryFactory.getAirportRepository(CURRENT_REPOSITORY_TYPE), airportCount);
+
+        RepositoryFactory.getAtmosphereRepository(CURRENT_REPOSITORY_TYPE).clear();
+        for (String iataCode : iataCodes) {
+            weatherService.addDataPoint(iataCode, DataPointType.WIND.name(), BenchmarkCatalogue.dataPoint(DataPointType.WIND));
+        }
+    }
+
+    @Benchmark
+    public List<AtmosphericInformation> getAirportWeather(BenchmarkCatalogue.Cursor cursor) {
+        return weatherService.getAirportWeather(iataCodes[cursor.next(iataCodes.length)], radius);
+    }
+}
@@ -3,6 +3,7 @@ package com.crossover.trial.weather;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.InputStream;
 
 /**
  * The interface shared to airport weather collection systems.
@@ -35,6 +36,29 @@ public interface WeatherCollectorEndpoint {
                            @PathParam("pointType") String pointType,
                            String datapointJson);
 
+    /**
+     * Update the atmospheric information of many airports and point types in a single request.
+     *
+     * @param dataPoints a json list of dicts containing iata, pointType and dataPoint keys
+     * @return HTTP Response code and a json formatted list with the outcome of each record
+     */
+    @POST
+    @Path("/weather/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response updateWeatherBatch(String dataPoints);
+
+    /**
+     * Update the atmospheric information of many airports and point types from a stream of newline delimited json
+     * records, applied as soon as the collection site pauses, or by groups while it keeps sending.
+     *
+     * @param dataPoints a stream of json dicts containing iata, pointType and dataPoint keys
+     * @return HTTP Response code and a json formatted count of the applied and rejected records
+     */
+    @POST
+    @Path("/weather/stream")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response updateWeatherStream(InputStream dataPoints);
+
     /**
      * Return a list of known airports as a json formatted list
      *
@@ -4,6 +4,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -38,4 +39,101 @@ public interface WeatherQueryEndpoint {
     @Path("/weather/{iata}/{radius}")
     @Produces(MediaType.APPLICATION_JSON)
     Response weather(@PathParam("iata") String iata, @PathParam("radius") String radiusString);
+
+    /**
+     * Retrieve the weather of the given airport and the airports in the given radius, the data points of each type
+     * merged into one weighted by their count of observations.
+     *
+     * @param iata         the three letter airport code
+     * @param radiusString the radius, in km, of the region
+     * @return an HTTP Response and the {@link com.crossover.trial.weather.entity.WeatherSummary} of the region
+     */
+    @GET
+    @Path("/summary/{iata}/{radius}")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response summary(@PathParam("iata") String iata, @PathParam("radius") String radiusString);
+
+    /**
+     * Retrieve the most up to date atmospheric information of the airports in the given radius of a position, which
+     * need not be an airport.
+     *
+     * @param latitudeString  the latitude of the position in degrees
+     * @param longitudeString the longitude of the position in degrees
+     * @param radiusString    the radius, in km, from which to collect weather data
+     * @return an HTTP Response and a list of {@link com.crossover.trial.weather.entity.AirportWeather}, nearest first
+     */
+    @GET
+    @Path("/position/{lat}/{long}/{radius}")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response position(@PathParam("lat") String latitudeString, @PathParam("long") String longitudeString,
+                      @PathParam("radius") String radiusString);
+
+    /**
+     * Retrieve the most up to date atmospheric information of the airports within a distance of the great-circle route
+     * between two airports, the two airports included.
+     *
+     * @param fromIata    the three letter code of the departure airport
+     * @param toIata      the three letter code of the arrival airport
+     * @param widthString the largest distance, in km, of an airport from the route
+     * @return an HTTP Response and a list of {@link com.crossover.trial.weather.entity.RouteWeather}, in the order of
+     * the route
+     */
+    @GET
+    @Path("/corridor/{from}/{to}/{width}")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response corridor(@PathParam("from") String fromIata, @PathParam("to") String toIata,
+                      @PathParam("width") String widthString);
+
+    /**
+     * Estimate the weather at a position, for each point type the average of the data points of the nearest airports
+     * having it, weighted by the inverse square of their distance.
+     *
+     * @param latitudeString   the latitude of the position in degrees
+     * @param longitudeString  the longitude of the position in degrees
+     * @param neighboursString the number of nearest airports to estimate each point type from, 4 by default
+     * @param maxAgeString     how long ago in milliseconds the weather of an airport may have been last updated, a
+     *                         day by default
+     * @return an HTTP Response and the {@link com.crossover.trial.weather.entity.WeatherEstimate}
+     */
+    @GET
+    @Path("/estimate/{lat}/{long}")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response estimate(@PathParam("lat") String latitudeString, @PathParam("long") String longitudeString,
+                      @QueryParam("neighbours") String neighboursString, @QueryParam("maxAge") String maxAgeString);
+
+    /**
+     * Retrieve the airports nearest to the given airport, the airport itself included, whose weather holds the given
+     * point types and was updated recently enough, with their distance.
+     *
+     * @param iata         the three letter airport code
+     * @param countString  the number of airports to retrieve
+     * @param pointTypes   comma separated point types, {@link com.crossover.trial.weather.common.DataPointType}, the
+     *                     weather must hold. Any weather by default
+     * @param maxAgeString how long ago in milliseconds the weather may have been last updated. Any age by default
+     * @return an HTTP Response and a list of {@link com.crossover.trial.weather.entity.AirportWeather}, nearest first
+     */
+    @GET
+    @Path("/nearest/{iata}/{count}")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response nearest(@PathParam("iata") String iata, @PathParam("count") String countString,
+                     @QueryParam("pointTypes") String pointTypes, @QueryParam("maxAge") String maxAgeString);
+
+    /**
+     * Retrieve the data points of a type collected for an airport within a time range, oldest first. Only the most
+     * recent data points of each airport are kept.
+     *
+     * @param iata       the three letter airport code
+     * @param pointType  the point type, {@link com.crossover.trial.weather.common.DataPointType}
+     * @param fromString the start of the range, in milliseconds since UTC epoch, 6 hours before the end by default
+     * @param toString   the end of the range, in milliseconds since UTC epoch, now by default
+     * @param resolution raw for the collected data points, 1m, 15m or 1h for the data points merged over each
+     *                   minute, quarter hour or hour. Raw by default
+     * @return an HTTP Response and a list of {@link com.crossover.trial.weather.entity.DataPointSample}
+     */
+    @GET
+    @Path("/history/{iata}/{pointType}")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response history(@PathParam("iata") String iata, @PathParam("pointType") String pointType,
+                     @QueryParam("from") String fromString, @QueryParam("to") String toString,
+                     @QueryParam("resolution") String resolution);
 }
@@ -1,20 +1,39 @@
 package com.crossover.trial.weather;
 
+import com.crossover.trial.weather.accesslog.AccessLog;
+import com.crossover.trial.weather.accesslog.AccessLogProbe;
 import com.crossover.trial.weather.configuration.AppConfig;
-import org.glassfish.grizzly.Connection;
+import com.crossover.trial.weather.endpoint.BulkheadHttpHandler;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.WeatherService;
+import com.crossover.trial.weather.service.factory.ServiceRegistryFactory;
+import org.glassfish.grizzly.http.server.HttpHandler;
 import org.glassfish.grizzly.http.server.HttpServer;
-import org.glassfish.grizzly.http.server.HttpServerFilter;
-import org.glassfish.grizzly.http.server.HttpServerProbe;
-import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpContainer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpContainerProvider;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static com.crossover.trial.weather.configuration.AppConfig.ACCESS_LOG_BUFFER_SIZE;
+import static com.crossover.trial.weather.configuration.AppConfig.ACCESS_LOG_FILE;
+import static com.crossover.trial.weather.configuration.AppConfig.ACCESS_LOG_MAX_FILES;
+import static com.crossover.trial.weather.configuration.AppConfig.ACCESS_LOG_MAX_FILE_SIZE;
+import static com.crossover.trial.weather.configuration.AppConfig.ACCESS_LOG_SAMPLE_RATE;
+import static com.crossover.trial.weather.configuration.AppConfig.AIRPORT_CATALOGUE;
+import static com.crossover.trial.weather.configuration.AppConfig.COLLECT_QUEUE_LIMIT;
+import static com.crossover.trial.weather.configuration.AppConfig.COLLECT_THREADS;
+import static com.crossover.trial.weather.configuration.AppConfig.HIGH_THROUGHPUT;
+import static com.crossover.trial.weather.configuration.AppConfig.QUERY_QUEUE_LIMIT;
+import static com.crossover.trial.weather.configuration.AppConfig.QUERY_THREADS;
 import static com.crossover.trial.weather.configuration.AppConfig.SERVER_STOP;
+import static com.crossover.trial.weather.configuration.AppConfig.STREAM_QUEUE_LIMIT;
+import static com.crossover.trial.weather.configuration.AppConfig.STREAM_THREADS;
 import static java.lang.String.format;
 
 
@@ -33,14 +52,23 @@ public class WeatherServer {
             System.out.println("Starting Weather App local testing server: " + BASE_URL);
 
             final ResourceConfig resourceConfig = new AppConfig();
+            if (AIRPORT_CATALOGUE != null) {
+                loadAirportCatalogue(new File(AIRPORT_CATALOGUE));
+            }
 
-            HttpServer httpServer = GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URL), resourceConfig, false);
-            HttpServerProbe probe = new HttpServerProbe.Adapter() {
-                public void onRequestReceiveEvent(HttpServerFilter filter, Connection connection, Request request) {
-                    System.out.println(request.getRequestURI());
-                }
-            };
-            httpServer.getServerConfiguration().getMonitoringConfig().getWebServerConfig().addProbes(probe);
+            // the collection and query endpoints are served by separate thread pools, so neither can starve the other
+            HttpServer httpServer = GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URL), false);
+            HttpHandler container =
+                    new GrizzlyHttpContainerProvider().createContainer(GrizzlyHttpContainer.class, resourceConfig);
+            httpServer.getServerConfiguration().addHttpHandler(new BulkheadHttpHandler(container)
+                    .withBulkhead("/collect/weather/stream", STREAM_THREADS, STREAM_QUEUE_LIMIT)
+                    .withBulkhead("/collect", COLLECT_THREADS, COLLECT_QUEUE_LIMIT)
+                    .withBulkhead("/query", QUERY_THREADS, QUERY_QUEUE_LIMIT), "/");
+            AccessLog accessLog = openAccessLog();
+            if (accessLog != null) {
+                httpServer.getServerConfiguration().getMonitoringConfig().getWebServerConfig()
+                        .addProbes(new AccessLogProbe(accessLog, ACCESS_LOG_SAMPLE_RATE));
+            }
 
 
             // the autograder waits for this output before running automated tests, please don't remove it
@@ -49,15 +77,37 @@ public class WeatherServer {
 
             // blocks until the process is terminated
             waitToStopServer(httpServer);
-        } catch (IOException | InterruptedException ex) {
+            if (accessLog != null) {
+                accessLog.close();
+            }
+        } catch (IOException | InterruptedException | ReflectiveOperationException ex) {
             Logger.getLogger(WeatherServer.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
-    private static void waitToStopServer(HttpServer httpServer) throws InterruptedException {
+    private static AccessLog openAccessLog() throws IOException {
+        if (HIGH_THROUGHPUT || ACCESS_LOG_FILE.isEmpty() || ACCESS_LOG_SAMPLE_RATE <= 0) {
+            return null;
+        }
+
+        System.out.println(format("Writing access log to %s", ACCESS_LOG_FILE));
+        return new AccessLog(new File(ACCESS_LOG_FILE), ACCESS_LOG_BUFFER_SIZE, ACCESS_LOG_MAX_FILE_SIZE,
+                ACCESS_LOG_MAX_FILES);
+    }
+
+    private static void loadAirportCatalogue(File catalogue) throws IOException, ReflectiveOperationException {
+        long start = System.currentTimeMillis();
+        AirportService airportService = ServiceRegistryFactory.getInstance().getService(AirportService.class);
+
+        int loaded = airportService.loadCatalogue(catalogue);
+        System.out.println(format("Loaded %d airports from %s in %d ms", loaded, catalogue, System.currentTimeMillis() - start));
+    }
+
+    private static void waitToStopServer(HttpServer httpServer) throws InterruptedException, ReflectiveOperationException {
         while (!SERVER_STOP) {
             Thread.sleep(500);
         }
         httpServer.shutdown();
+        ServiceRegistryFactory.getInstance().<WeatherService>getService(WeatherService.class).stopIngest();
     }
 }
@@ -0,0 +1,438 @@
+package com.crossover.trial.weather.accesslog;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Access log written in the background, so serving a request never waits for the disk nor for another request.
+ * <p>
+ * Request threads put their access events in a bounded ring buffer without locking: each claims the next slot with a
+ * compare and swap, and an event finding the ring full is dropped and counted rather than waited for. A single writer
+ * thread drains the ring to the log file, one line per event, and notes how many events were dropped.
+ * <p>
+ * Once the file reaches its maximum size it is rotated: {@code <file>.1} becomes {@code <file>.2} and so on up to the
+ * maximum number of files, the oldest being deleted, and the file becomes {@code <file>.1}.
+ * <p>
+ * A failure to write or rotate the file closes it, the events being dropped until it is reopened, retried at growing
+ * intervals.
+ */
+public class AccessLog implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(AccessLog.class.getName());
+
+    /**
+     * how long the writer sleeps once the ring is empty
+     */
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * how long the writer waits before reopening the file after a write failure, doubled on each failure until the
+     * file is written again
+     */
+    private static final long MIN_REOPEN_DELAY = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long MAX_REOPEN_DELAY = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * An access to the server
+     */
+    public static class Event {
+        /**
+         * time the request was received in milliseconds since UTC epoch
+         */
+        private final long time;
+
+        private final String remoteAddress;
+
+        private final String method;
+
+        private final String uri;
+
+        private final int status;
+
+        private final long durationNanos;
+
+        public Event(long time, String remoteAddress, String method, String uri, int status, long durationNanos) {
+            this.time = time;
+            this.remoteAddress = remoteAddress;
+            this.method = method;
+            this.uri = uri;
+            this.status = status;
+            this.durationNanos = durationNanos;
+        }
+
+        private String toLine() {
+            return Instant.ofEpochMilli(time) + " " + remoteAddress + " " + method + " " + uri + " " + status + " "
+                    + TimeUnit.NANOSECONDS.toMicros(durationNanos) + "us";
+        }
+    }
+
+    private final File file;
+
+    private final long maxFileSize;
+
+    private final int maxFiles;
+
+    private final int mask;
+
+    private final AtomicReferenceArray<Event> slots;
+
+    /**
+     * sequence number a slot expects: its index plus a multiple of the capacity while free, one more once filled
+     */
+    private final AtomicLongArray slotSequences;
+
+    /**
+     * sequence number of the next event to put in the ring
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * sequence number of the next event to write, only used by the writer thread
+     */
+    private long head;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * set by {@link #close()} to refuse new events
+     */
+    private volatile boolean closed;
+
+    /**
+     * number of {@link #log(Event)} calls under way, waited for by the close so the last drain of the writer sees the
+     * events they put in the ring
+     */
+    private final AtomicInteger logging = new AtomicInteger();
+
+    /**
+     * set by {@link #close()} once no event can be put in the ring any more, the writer then drains it and stops
+     */
+    private volatile boolean stopping;
+
+    private final Thread writerThread;
+
+    // file state, only used by the writer thread once opened
+
+    /**
+     * null after a write failure, until the file is reopened
+     */
+    private Writer writer;
+
+    /**
+     * size of the file in bytes, counting the lines still buffered by the writer
+     */
+    private long fileSize;
+
+    private long reopenDelay = MIN_REOPEN_DELAY;
+
+    /**
+     * {@link System#nanoTime()} after which the file may be reopened
+     */
+    private long reopenTime;
+
+    /**
+     * Open the log file, appending to it, and start the writer thread
+     *
+     * @param file        the log file, its directory created if needed
+     * @param capacity    number of events the ring holds, rounded up to a power of two
+     * @param maxFileSize size in bytes beyond which the file is rotated
+     * @param maxFiles    number of rotated files kept besides the log file
+     * @throws IOException if the file can not be opened
+     */
+    public AccessLog(File file, int capacity, long maxFileSize, int maxFiles) throws IOException {
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        slots = new AtomicReferenceArray<>(size);
+        slotSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slotSequences.set(i, i);
+        }
+
+        openFile();
+
+        writerThread = new Thread(this::writeLoop, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queue an event to be written, without waiting
+     *
+     * @return false if the ring was full or the log closed, the event being dropped
+     */
+    public boolean log(Event event) {
+        // counted before checking the flag, so the close either is seen here or waits for this event
+        logging.incrementAndGet();
+        try {
+            if (closed) {
+                return false;
+            }
+
+            while (true) {
+                long sequence = tail.get();
+                int index = (int) sequence & mask;
+                long slotSequence = slotSequences.get(index);
+
+                if (slotSequence == sequence) {
+                    if (tail.compareAndSet(sequence, sequence + 1)) {
+                        slots.set(index, event);
+                        slotSequences.set(index, sequence + 1);
+                        return true;
+                    }
+                } else if (slotSequence < sequence) {
+                    // the slot still holds the event put a lap earlier
+                    dropped.incrementAndGet();
+                    return false;
+                }
+            }
+        } finally {
+            logging.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of events dropped because the ring was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Refuse new events, wait for the ones being put in the ring, write the queued events then stop the writer thread
+     */
+    @Override
+    public void close() {
+        closed = true;
+        while (logging.get() > 0) {
+            Thread.yield();
+        }
+        stopping = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        long reportedDropped = 0;
+        boolean unflushed = false;
+
+        while (true) {
+            boolean stopping = this.stopping;
+            if (writer == null && !reopen()) {
+                // the ring is still emptied so the request threads do not find it full
+                dropped.addAndGet(discard());
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_WAIT);
+                continue;
+            }
+
+            try {
+                int written = drain();
+                unflushed |= written > 0;
+                long droppedNow = dropped.get();
+                if (droppedNow > reportedDropped) {
+                    writeLine(Instant.now() + " " + (droppedNow - reportedDropped) + " access events dropped");
+                    reportedDropped = droppedNow;
+                }
+
+                if (written == 0) {
+                    writer.flush();
+                    if (unflushed) {
+                        // written again since the last failure, if any
+                        reopenDelay = MIN_REOPEN_DELAY;
+                        unflushed = false;
+                    }
+                    if (stopping) {
+                        writer.close();
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_WAIT);
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not write the access log " + file + ", closing it", e);
+                closeWriter();
+                delayReopen();
+                unflushed = false;
+                if (stopping) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reopen the file once the delay after the last failure elapsed
+     *
+     * @return true if the file is open
+     */
+    private boolean reopen() {
+        if (System.nanoTime() - reopenTime < 0) {
+            return false;
+        }
+
+        try {
+            openFile();
+            LOGGER.info("Reopened the access log " + file);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not reopen the access log " + file, e);
+            delayReopen();
+            return false;
+        }
+    }
+
+    /**
+     * Wait before the next reopen, twice as long as the previous time until the file is written again
+     */
+    private void delayReopen() {
+        reopenTime = System.nanoTime() + reopenDelay;
+        reopenDelay = Math.min(2 * reopenDelay, MAX_REOPEN_DELAY);
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Could not close the access log " + file, e);
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * @return number of events written
+     */
+    private int drain() throws IOException {
+        int written = 0;
+
+        Event event;
+        while ((event = poll()) != null) {
+            writeLine(event.toLine());
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * @return number of events discarded
+     */
+    private int discard() {
+        int discarded = 0;
+
+        while (poll() != null) {
+            discarded++;
+        }
+        return discarded;
+    }
+
+    /**
+     * @return the next event of the ring, null if it is empty
+     */
+    private Event poll() {
+        int index = (int) head & mask;
+        if (slotSequences.get(index) != head + 1) {
+            return null;
+        }
+
+        Event event = slots.get(index);
+        slots.set(index, null);
+        slotSequences.set(index, head + mask + 1);
+        head++;
+        return event;
+    }
+
+    private void writeLine(String line) throws IOException {
+        if (fileSize >= maxFileSize) {
+            rotate();
+        }
+
+        writer.write(line);
+        writer.write('\n');
+        fileSize += utf8Length(line) + 1;
+    }
+
+    /**
+     * @return the number of bytes of the UTF-8 encoding of the text
+     */
+    private static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // encoded as the replacement byte '?'
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void openFile() throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        fileSize = file.length();
+    }
+
+    private void rotate() throws IOException {
+        closeWriter();
+
+        Files.deleteIfExists(rotatedFile(maxFiles).toPath());
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File rotated = rotatedFile(i);
+            if (rotated.exists()) {
+                Files.move(rotated.toPath(), rotatedFile(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(file.toPath(), rotatedFile(1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file.toPath());
+        }
+
+        openFile();
+    }
+
+    private File rotatedFile(int index) {
+        return new File(file.getPath() + "." + index);
+    }
+}
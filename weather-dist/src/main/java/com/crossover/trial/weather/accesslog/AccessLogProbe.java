@@ -0,0 +1,54 @@
+package com.crossover.trial.weather.accesslog;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.http.Note;
+import org.glassfish.grizzly.http.server.HttpServerFilter;
+import org.glassfish.grizzly.http.server.HttpServerProbe;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Puts a sample of the requests served by the HTTP server in the {@link AccessLog}, once they are completed.
+ */
+public class AccessLogProbe extends HttpServerProbe.Adapter {
+
+    /**
+     * {@link System#nanoTime()} when a sampled request was received, not set on the others
+     */
+    private static final Note<Long> RECEIVE_TIME = Request.createNote("access-log-receive-time");
+
+    private final AccessLog accessLog;
+
+    private final double sampleRate;
+
+    /**
+     * @param accessLog  the log of the sampled requests
+     * @param sampleRate fraction of the requests logged, between 0 and 1
+     */
+    public AccessLogProbe(AccessLog accessLog, double sampleRate) {
+        this.accessLog = accessLog;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void onRequestReceiveEvent(HttpServerFilter filter, Connection connection, Request request) {
+        if (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            request.setNote(RECEIVE_TIME, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void onRequestCompleteEvent(HttpServerFilter filter, Connection connection, Response response) {
+        Request request = response.getRequest();
+        Long receiveTime = request.removeNote(RECEIVE_TIME);
+        if (receiveTime == null) {
+            return;
+        }
+
+        long duration = System.nanoTime() - receiveTime;
+        accessLog.log(new AccessLog.Event(System.currentTimeMillis() - duration / 1_000_000, request.getRemoteAddr(),
+                request.getMethod().getMethodString(), request.getRequestURI(), response.getStatus(), duration));
+    }
+}
@@ -0,0 +1,34 @@
+package com.crossover.trial.weather.agent;
+
+import com.crossover.trial.weather.client.AirportCSVParser;
+import com.crossover.trial.weather.entity.Airport;
+import com.crossover.trial.weather.repository.catalogue.AirportCatalogue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Converts an airports.dat CSV file into the binary catalogue loaded by the server at boot with
+ * -Dweather.airportCatalogue, see {@link AirportCatalogue}
+ */
+public class AirportCatalogueConverter {
+
+    public static void main(String args[]) throws IOException {
+        if (args == null || args.length < 2) {
+            System.err.println("usage: AirportCatalogueConverter <airports.dat> <catalogue>");
+            return;
+        }
+
+        File airportDataFile = new File(args[0]);
+        if (!airportDataFile.exists() || airportDataFile.length() == 0) {
+            System.err.println(airportDataFile + " is not a valid input");
+            return;
+        }
+
+        List<Airport> airports = new AirportCSVParser().readAirportsFromFile(args[0]);
+        int written = AirportCatalogue.write(airports, new File(args[1]));
+
+        System.out.println(String.format("Converted %1$d of %2$d airports into %3$s", written, airports.size(), args[1]));
+    }
+}
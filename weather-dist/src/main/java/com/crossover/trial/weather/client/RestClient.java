@@ -1,11 +1,13 @@
 package com.crossover.trial.weather.client;
 
 import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointRecord;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.ws.rs.client.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.List;
 
 public class RestClient {
     private static final String DEFAULT_BASE_URI = "http://localhost:9090";
@@ -50,6 +52,11 @@ public class RestClient {
         return path.request().post(Entity.entity(dataPoint, MediaType.APPLICATION_JSON));
     }
 
+    public Response addWeatherBatch(List<DataPointRecord> dataPoints) {
+        WebTarget path = collect.path("/weather/batch");
+        return path.request().post(Entity.entity(dataPoints, MediaType.APPLICATION_JSON));
+    }
+
     public Response addAirport(String iata, double latString, double longString) {
         iata = StringUtils.isEmpty(iata) ? " " : iata;
         StringBuilder path = new StringBuilder("/airport/")
@@ -4,10 +4,14 @@ import com.crossover.trial.weather.exception.ErrorCode;
 import com.crossover.trial.weather.exception.WeatherException;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.Locale;
+
 public class AirportHelper {
+    public static final double EARTH_RADIUS = 6372.8;
 
     public static void checkLatLonRange(double lat, double lon) {
-        if ((lat < -90 || lat > 90) || (lon < -180 || lon > 180)) {
+        // written so that NaN is out of range
+        if (!(lat >= -90 && lat <= 90) || !(lon >= -180 && lon <= 180)) {
             throw new WeatherException(ErrorCode.WEA_1003,
                     "latitude/longitude", "Should be Latitude [-90, 90], longitude [-180, 180].");
         }
@@ -19,4 +23,80 @@ public class AirportHelper {
                     "IATA Code", "IATA Code should contains 3 character.");
         }
     }
+
+    /**
+     * Canonical form of an IATA code used as repository key, so that lookups are case insensitive.
+     *
+     * @param iataCode the IATA code as provided by the client
+     * @return the upper case IATA code, or null if no code is given
+     */
+    public static String toIataKey(String iataCode) {
+        return iataCode == null ? null : iataCode.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Haversine distance between two points given in degrees.
+     *
+     * @param fromLatitude  latitude of point 1
+     * @param fromLongitude longitude of point 1
+     * @param toLatitude    latitude of point 2
+     * @param toLongitude   longitude of point 2
+     * @return the distance in KM
+     */
+    public static double calculateDistance(double fromLatitude, double fromLongitude,
+                                           double toLatitude, double toLongitude) {
+        double deltaLat = Math.toRadians(toLatitude - fromLatitude);
+        double deltaLon = Math.toRadians(toLongitude - fromLongitude);
+
+        double a =  Math.pow(Math.sin(deltaLat / 2), 2)
+                + Math.pow(Math.sin(deltaLon / 2), 2)
+                * Math.cos(Math.toRadians(fromLatitude))
+                * Math.cos(Math.toRadians(toLatitude));
+        double c = 2 * Math.asin(Math.sqrt(a));
+
+        return EARTH_RADIUS * c;
+    }
+
+    /**
+     * Initial bearing of the great-circle route between two points given in degrees.
+     *
+     * @return the bearing in radians, clockwise from north
+     */
+    public static double calculateInitialBearing(double fromLatitude, double fromLongitude,
+                                                 double toLatitude, double toLongitude) {
+        double fromLat = Math.toRadians(fromLatitude);
+        double toLat = Math.toRadians(toLatitude);
+        double deltaLon = Math.toRadians(toLongitude - fromLongitude);
+
+        return Math.atan2(Math.sin(deltaLon) * Math.cos(toLat),
+                Math.cos(fromLat) * Math.sin(toLat) - Math.sin(fromLat) * Math.cos(toLat) * Math.cos(deltaLon));
+    }
+
+    /**
+     * Point at a fraction of the great-circle route between two points given in degrees.
+     *
+     * @param fraction 0 for the first point, 1 for the second one
+     * @return the latitude and longitude of the point in degrees
+     */
+    public static double[] calculateIntermediatePoint(double fromLatitude, double fromLongitude,
+                                                      double toLatitude, double toLongitude, double fraction) {
+        double angularDistance = calculateDistance(fromLatitude, fromLongitude, toLatitude, toLongitude) / EARTH_RADIUS;
+        if (Math.sin(angularDistance) < 1e-12) {
+            // same or antipodal points, no single route between them
+            return new double[]{fromLatitude, fromLongitude};
+        }
+
+        double fromLat = Math.toRadians(fromLatitude);
+        double fromLon = Math.toRadians(fromLongitude);
+        double toLat = Math.toRadians(toLatitude);
+        double toLon = Math.toRadians(toLongitude);
+        double a = Math.sin((1 - fraction) * angularDistance) / Math.sin(angularDistance);
+        double b = Math.sin(fraction * angularDistance) / Math.sin(angularDistance);
+
+        double x = a * Math.cos(fromLat) * Math.cos(fromLon) + b * Math.cos(toLat) * Math.cos(toLon);
+        double y = a * Math.cos(fromLat) * Math.sin(fromLon) + b * Math.cos(toLat) * Math.sin(toLon);
+        double z = a * Math.sin(fromLat) + b * Math.sin(toLat);
+
+        return new double[]{Math.toDegrees(Math.atan2(z, Math.sqrt(x * x + y * y))), Math.toDegrees(Math.atan2(y, x))};
+    }
 }
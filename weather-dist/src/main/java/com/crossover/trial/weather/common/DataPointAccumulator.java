@@ -0,0 +1,114 @@
+package com.crossover.trial.weather.common;
+
+import com.crossover.trial.weather.entity.DataPoint;
+
+import java.util.Arrays;
+
+/**
+ * Merges data points into one describing all their observations. The mean and quartiles are averaged weighted by
+ * the count of observations of each data point, a data point without count weighing as one observation, and counts
+ * are summed. Quartiles of merged observations cannot be computed from the quartiles of their parts, the weighted
+ * average is an approximation.
+ * <p>
+ * The merge is also available over weighted sums held by the caller, {@link #SUM_COUNT} consecutive doubles per
+ * merge, for structures keeping many merges in primitive arrays.
+ */
+public class DataPointAccumulator {
+    /**
+     * number of weighted sums of a merge: weight, mean, first, second and third quartiles
+     */
+    public static final int SUM_COUNT = 5;
+
+    private static final int WEIGHT = 0;
+
+    private static final int MEAN = 1;
+
+    private static final int FIRST = 2;
+
+    private static final int SECOND = 3;
+
+    private static final int THIRD = 4;
+
+    private final double[] sums = new double[SUM_COUNT];
+
+    private long count;
+
+    public void add(DataPoint dataPoint) {
+        add(dataPoint, weightOf(dataPoint));
+    }
+
+    /**
+     * Add a data point with a weight of its own, e.g. decreasing with its distance for a spatial interpolation. The
+     * count of observations is still summed.
+     *
+     * @param dataPoint       the data point
+     * @param dataPointWeight its weight, positive
+     */
+    public void add(DataPoint dataPoint, double dataPointWeight) {
+        addSums(sums, 0, dataPoint, dataPointWeight);
+        count += dataPoint.getCount();
+    }
+
+    public void add(DataPointAccumulator other) {
+        for (int i = 0; i < SUM_COUNT; i++) {
+            sums[i] += other.sums[i];
+        }
+        count += other.count;
+    }
+
+    public void reset() {
+        Arrays.fill(sums, 0);
+        count = 0;
+    }
+
+    public boolean isEmpty() {
+        return sums[WEIGHT] == 0;
+    }
+
+    /**
+     * @return the merged data point, null if nothing was added
+     */
+    public DataPoint toDataPoint() {
+        return isEmpty() ? null : toDataPoint(sums, 0, count);
+    }
+
+    /**
+     * @return the weight of a data point merged on its own count of observations
+     */
+    public static double weightOf(DataPoint dataPoint) {
+        return dataPoint.getCount() > 0 ? dataPoint.getCount() : 1;
+    }
+
+    /**
+     * Add a weighted data point to the sums of a merge, its count of observations being summed by the caller
+     *
+     * @param sums            the weighted sums of merges
+     * @param offset          index of the first sum of the merge
+     * @param dataPoint       the data point
+     * @param dataPointWeight its weight, positive
+     */
+    public static void addSums(double[] sums, int offset, DataPoint dataPoint, double dataPointWeight) {
+        sums[offset + WEIGHT] += dataPointWeight;
+        sums[offset + MEAN] += dataPointWeight * dataPoint.getMean();
+        sums[offset + FIRST] += dataPointWeight * dataPoint.getFirst();
+        sums[offset + SECOND] += dataPointWeight * dataPoint.getSecond();
+        sums[offset + THIRD] += dataPointWeight * dataPoint.getThird();
+    }
+
+    /**
+     * @param sums   the weighted sums of merges
+     * @param offset index of the first sum of the merge, which must not be empty
+     * @param count  the observations counted by the merge
+     * @return the merged data point
+     */
+    public static DataPoint toDataPoint(double[] sums, int offset, long count) {
+        double weight = sums[offset + WEIGHT];
+        return new DataPoint.Builder()
+                .withMean(sums[offset + MEAN] / weight)
+                .withFirst((int) Math.round(sums[offset + FIRST] / weight))
+                .withMedian((int) Math.round(sums[offset + SECOND] / weight))
+                .withLast((int) Math.round(sums[offset + THIRD] / weight))
+                .withCount((int) Math.min(count, Integer.MAX_VALUE))
+                .build();
+    }
+}
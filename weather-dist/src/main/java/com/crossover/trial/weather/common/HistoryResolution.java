@@ -0,0 +1,50 @@
+package com.crossover.trial.weather.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The resolutions at which the data point history of an airport can be queried: every collected data point, or
+ * data points merged over fixed time buckets maintained as data points are collected.
+ */
+public enum HistoryResolution {
+    RAW("raw", 0),
+    MINUTE("1m", TimeUnit.MINUTES.toMillis(1)),
+    QUARTER_HOUR("15m", TimeUnit.MINUTES.toMillis(15)),
+    HOUR("1h", TimeUnit.HOURS.toMillis(1));
+
+    private final String parameter;
+
+    private final long bucketMillis;
+
+    HistoryResolution(String parameter, long bucketMillis) {
+        this.parameter = parameter;
+        this.bucketMillis = bucketMillis;
+    }
+
+    /**
+     * @return the name of the resolution in queries
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * @return the time span merged in each bucket, 0 for raw data points
+     */
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * @param parameter the name of the resolution in a query, e.g. 15m
+     * @return the resolution, null if there is none with that name
+     */
+    public static HistoryResolution fromParameter(String parameter) {
+        for (HistoryResolution resolution : values()) {
+            if (resolution.parameter.equalsIgnoreCase(parameter)) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+}
@@ -1,6 +1,20 @@
 package com.crossover.trial.weather.common;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public class JSONHelper {
     /**
@@ -8,6 +22,11 @@ public class JSONHelper {
      */
     private final static Gson gson = new Gson();
 
+    /**
+     * shared jackson mapper, serialising entities the same way as the jersey json provider of the endpoints
+     */
+    private final static ObjectMapper objectMapper = new ObjectMapper();
+
     static public <T extends Object> T fromJson(String json, Class clazz) {
         return (T) gson.fromJson(json, clazz);
     }
@@ -15,4 +34,53 @@ public class JSONHelper {
     static public String toJson(Object object) {
         return gson.toJson(object);
     }
+
+    /**
+     * @return the UTF-8 encoded json of the given object, as written by the jersey json provider
+     */
+    static public byte[] toJsonBytes(Object object) {
+        try {
+            return objectMapper.writeValueAsBytes(object);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pull the json values of a stream one at a time, such as newline delimited json, holding only the value being
+     * read in memory. The iterator throws a {@link com.google.gson.JsonParseException} once the stream is not valid
+     * json, the values after it can not be read.
+     *
+     * @param reader the stream of json values, separated by whitespaces
+     * @param clazz  the class of the values
+     * @return the values in the order of the stream, a json null being a null value
+     */
+    static public <T> Iterator<T> fromJsonStream(Reader reader, Class<T> clazz) {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return jsonReader.peek() != JsonToken.END_DOCUMENT;
+                } catch (EOFException e) {
+                    // thrown instead of END_DOCUMENT by a stream holding no value at all
+                    return false;
+                } catch (MalformedJsonException e) {
+                    throw new JsonSyntaxException(e);
+                } catch (IOException e) {
+                    throw new JsonIOException(e);
+                }
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return gson.fromJson(jsonReader, clazz);
+            }
+        };
+    }
 }
@@ -59,6 +59,36 @@ public class WeatherHelper {
         }
     }
 
+    /**
+     * Check that the data point value is valid for the given point type
+     *
+     * @param weatherType the point type of the data point
+     * @param dataPoint   the data point to check
+     * @throws WeatherException if the value is out of the range of the point type
+     */
+    public static void checkDataPoint(DataPointType weatherType, DataPoint dataPoint) throws WeatherException {
+        switch (weatherType) {
+            case WIND:
+                checkWind(dataPoint);
+                break;
+            case TEMPERATURE:
+                checkTemperature(dataPoint);
+                break;
+            case HUMIDITY:
+                checkHumidity(dataPoint);
+                break;
+            case PRESSURE:
+                checkPressure(dataPoint);
+                break;
+            case CLOUD_COVER:
+                checkCloudCover(dataPoint);
+                break;
+            case PRECIPITATION:
+                checkPrecipitation(dataPoint);
+                break;
+        }
+    }
+
     private static void throwDataPointError () throws WeatherException {
         throw new WeatherException(ErrorCode.WEA_1001, "Illegal data point value");
     }
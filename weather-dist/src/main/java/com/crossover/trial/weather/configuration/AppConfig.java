@@ -1,19 +1,236 @@
 package com.crossover.trial.weather.configuration;
 
+import com.crossover.trial.weather.endpoint.AtmosphericInformationListWriter;
 import com.crossover.trial.weather.endpoint.WeatherCollectorEndpointImpl;
 import com.crossover.trial.weather.endpoint.WeatherQueryEndpointImpl;
 import com.crossover.trial.weather.exception.GlobalExceptionHandler;
+import com.crossover.trial.weather.repository.RadiusHistogram;
 import com.crossover.trial.weather.repository.factory.RepositoryType;
 import org.glassfish.jersey.server.ResourceConfig;
 
+import java.util.Arrays;
+
 public class AppConfig extends ResourceConfig {
-    public static final RepositoryType CURRENT_REPOSITORY_TYPE = RepositoryType.IN_MEMORY;
+    /**
+     * Storage of the airports and their weather, overridable with -Dweather.repository.type
+     */
+    public static final RepositoryType CURRENT_REPOSITORY_TYPE =
+            RepositoryType.valueOf(System.getProperty("weather.repository.type", "IN_MEMORY"));
+
+    /**
+     * Directory of the FILE repositories journals and snapshots, overridable with -Dweather.repository.directory
+     */
+    public static final String FILE_REPOSITORY_DIRECTORY = System.getProperty("weather.repository.directory", "data");
+
+    /**
+     * Number of changes journaled by a FILE repository after which they are compacted into a snapshot, bounding the
+     * recovery time, overridable with -Dweather.repository.compactionThreshold
+     */
+    public static final int FILE_REPOSITORY_COMPACTION_THRESHOLD =
+            Integer.getInteger("weather.repository.compactionThreshold", 100000);
 
     public static volatile boolean SERVER_STOP = false;
 
+    /**
+     * Binary airport catalogue loaded at boot, see {@link com.crossover.trial.weather.agent.AirportCatalogueConverter},
+     * set with -Dweather.airportCatalogue. None by default
+     */
+    public static final String AIRPORT_CATALOGUE = System.getProperty("weather.airportCatalogue");
+
+    /**
+     * Bucketing of the radius_freq health statistic, overridable with -Dweather.radiusHistogram.* system properties
+     */
+    public static final RadiusHistogram.Scale RADIUS_HISTOGRAM_SCALE =
+            RadiusHistogram.Scale.valueOf(System.getProperty("weather.radiusHistogram.scale", "LINEAR"));
+
+    public static final int RADIUS_HISTOGRAM_BUCKETS = getInteger("weather.radiusHistogram.buckets", 1000, 1);
+
+    public static final double RADIUS_HISTOGRAM_BUCKET_WIDTH =
+            getPositiveDouble("weather.radiusHistogram.bucketWidth", 1);
+
+    /**
+     * How long in milliseconds a computed health status is served before being computed again,
+     * overridable with -Dweather.health.refreshInterval
+     */
+    public static final long HEALTH_STATUS_REFRESH_INTERVAL = Long.getLong("weather.health.refreshInterval", 1000);
+
+    /**
+     * Number of data points kept in the history of each airport and point type, 32 bytes each, overridable with
+     * -Dweather.history.capacity. The default keeps 6 hours of data points collected every minute
+     */
+    public static final int HISTORY_CAPACITY = getInteger("weather.history.capacity", 360, 1);
+
+    /**
+     * Number of buckets kept in the history of each airport and point type for each rolled up resolution, 56 bytes
+     * each once the collected time span fills them, overridable with -Dweather.history.buckets.1m, .15m and .1h. The
+     * defaults keep an hour of minutes, a day of quarter hours and a week of hours
+     */
+    public static final int HISTORY_MINUTE_BUCKETS = getInteger("weather.history.buckets.1m", 60, 1);
+
+    public static final int HISTORY_QUARTER_HOUR_BUCKETS = getInteger("weather.history.buckets.15m", 96, 1);
+
+    public static final int HISTORY_HOUR_BUCKETS = getInteger("weather.history.buckets.1h", 168, 1);
+
+    /**
+     * Radiuses in KM of the weather queries served from neighbour lists kept for every airport, overridable with a
+     * comma separated -Dweather.hotRadii, empty for none. Each list costs a reference per airport in range, radius 0
+     * needs none as it is a single airport lookup
+     */
+    public static final double[] HOT_RADII = Arrays.stream(System.getProperty("weather.hotRadii", "50,100,250")
+            .split(","))
+            .map(String::trim)
+            .filter(radius -> !radius.isEmpty())
+            .mapToDouble(Double::parseDouble)
+            .toArray();
+
+    /**
+     * Largest number of airports a nearest airports query may ask for, overridable with -Dweather.nearest.maxCount
+     */
+    public static final int NEAREST_MAX_COUNT = Integer.getInteger("weather.nearest.maxCount", 100);
+
+    /**
+     * Number of nearest airports having a point type the estimate of the point type at a position is interpolated
+     * from by default, overridable with -Dweather.estimate.neighbours
+     */
+    public static final int ESTIMATE_NEIGHBOURS = Integer.getInteger("weather.estimate.neighbours", 4);
+
+    /**
+     * Largest distance in KM of an airport contributing to the estimate of the weather at a position, bounding the
+     * search when a point type is rarely collected, overridable with -Dweather.estimate.maxDistance
+     */
+    public static final double ESTIMATE_MAX_DISTANCE =
+            Double.parseDouble(System.getProperty("weather.estimate.maxDistance", "1000"));
+
+    /**
+     * Largest number of rejected records a streamed weather update reports, the others are only counted so the
+     * report stays bounded however long the stream, overridable with -Dweather.stream.maxRejections
+     */
+    public static final int STREAM_MAX_REJECTIONS = Integer.getInteger("weather.stream.maxRejections", 100);
+
+    /**
+     * Whether collected data points are validated then queued to be applied in the background, the collection sites
+     * getting 202 instead of 200, overridable with -Dweather.ingest.async
+     */
+    public static final boolean INGEST_ASYNC = Boolean.getBoolean("weather.ingest.async");
+
+    /**
+     * Number of queued data points beyond which updates are refused with 503 in asynchronous ingest mode,
+     * overridable with -Dweather.ingest.queueCapacity
+     */
+    public static final int INGEST_QUEUE_CAPACITY = Integer.getInteger("weather.ingest.queueCapacity", 10000);
+
+    /**
+     * Number of threads applying the queued data points, overridable with -Dweather.ingest.threads
+     */
+    public static final int INGEST_THREADS = Integer.getInteger("weather.ingest.threads", 2);
+
+    /**
+     * Largest number of queued data points an applier thread takes at once, overridable with
+     * -Dweather.ingest.batchSize
+     */
+    public static final int INGEST_BATCH_SIZE = Integer.getInteger("weather.ingest.batchSize", 500);
+
+    /**
+     * Number of threads serving the /collect requests but the streams, apart from the /query ones, overridable with
+     * -Dweather.collect.threads, 0 to serve them on the shared Grizzly worker threads
+     */
+    public static final int COLLECT_THREADS =
+            Integer.getInteger("weather.collect.threads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Number of /collect requests waiting for a thread beyond which they are refused with 503, overridable with
+     * -Dweather.collect.queueLimit
+     */
+    public static final int COLLECT_QUEUE_LIMIT = Integer.getInteger("weather.collect.queueLimit", 1000);
+
+    /**
+     * Number of threads serving the /collect/weather/stream requests, apart from the other /collect ones. A stream
+     * holds its thread as long as the collection site keeps it open, so this bounds the number of sites streaming at
+     * once. Overridable with -Dweather.stream.threads, 0 to serve them with the other /collect requests
+     */
+    public static final int STREAM_THREADS = Integer.getInteger("weather.stream.threads", 64);
+
+    /**
+     * Number of streams waiting for a thread beyond which they are refused with 503, kept low as a waiting stream
+     * only gets a thread once another one is closed, overridable with -Dweather.stream.queueLimit
+     */
+    public static final int STREAM_QUEUE_LIMIT = Integer.getInteger("weather.stream.queueLimit", 8);
+
+    /**
+     * Number of threads serving the /query requests, apart from the /collect ones, overridable with
+     * -Dweather.query.threads, 0 to serve them on the shared Grizzly worker threads
+     */
+    public static final int QUERY_THREADS =
+            Integer.getInteger("weather.query.threads", 2 * Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Number of /query requests waiting for a thread beyond which they are refused with 503, overridable with
+     * -Dweather.query.queueLimit
+     */
+    public static final int QUERY_QUEUE_LIMIT = Integer.getInteger("weather.query.queueLimit", 1000);
+
+    /**
+     * Whether the server skips everything not needed to serve requests, the access log included, overridable with
+     * -Dweather.highThroughput
+     */
+    public static final boolean HIGH_THROUGHPUT = Boolean.getBoolean("weather.highThroughput");
+
+    /**
+     * File of the access log, overridable with -Dweather.accessLog.file, empty for no access log
+     */
+    public static final String ACCESS_LOG_FILE = System.getProperty("weather.accessLog.file", "logs/access.log");
+
+    /**
+     * Fraction of the requests written to the access log, overridable with -Dweather.accessLog.sampleRate
+     */
+    public static final double ACCESS_LOG_SAMPLE_RATE =
+            Double.parseDouble(System.getProperty("weather.accessLog.sampleRate", "1"));
+
+    /**
+     * Number of access events waiting to be written beyond which new ones are dropped, overridable with
+     * -Dweather.accessLog.bufferSize
+     */
+    public static final int ACCESS_LOG_BUFFER_SIZE = Integer.getInteger("weather.accessLog.bufferSize", 8192);
+
+    /**
+     * Size in bytes beyond which the access log is rotated, overridable with -Dweather.accessLog.maxFileSize
+     */
+    public static final long ACCESS_LOG_MAX_FILE_SIZE = Long.getLong("weather.accessLog.maxFileSize", 10 * 1024 * 1024);
+
+    /**
+     * Number of rotated access log files kept, overridable with -Dweather.accessLog.maxFiles
+     */
+    public static final int ACCESS_LOG_MAX_FILES = Integer.getInteger("weather.accessLog.maxFiles", 5);
+
     public AppConfig() {
         register(WeatherCollectorEndpointImpl.class);
         register(WeatherQueryEndpointImpl.class);
         register(GlobalExceptionHandler.class);
+        register(AtmosphericInformationListWriter.class);
+    }
+
+    /**
+     * @return the value of an integer system property, or its default
+     * @throws IllegalArgumentException if the value is below the minimum, failing the startup
+     */
+    private static int getInteger(String name, int defaultValue, int minimum) {
+        int value = Integer.getInteger(name, defaultValue);
+        if (value < minimum) {
+            throw new IllegalArgumentException(name + " should be at least " + minimum + ", not " + value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the value of a decimal system property, or its default
+     * @throws IllegalArgumentException if the value is not a finite positive number, failing the startup
+     */
+    private static double getPositiveDouble(String name, double defaultValue) {
+        String property = System.getProperty(name);
+        double value = property == null ? defaultValue : Double.parseDouble(property);
+        if (!(value > 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException(name + " should be a positive number, not " + property);
+        }
+        return value;
     }
 }
@@ -0,0 +1,49 @@
+package com.crossover.trial.weather.endpoint;
+
+import com.crossover.trial.weather.entity.AtmosphericInformation;
+import com.crossover.trial.weather.entity.AtmosphericInformationList;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Writes an {@link AtmosphericInformationList} as a json array of the cached json of each snapshot, instead of
+ * serialising every snapshot again on each query.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class AtmosphericInformationListWriter implements MessageBodyWriter<AtmosphericInformationList> {
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return AtmosphericInformationList.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(AtmosphericInformationList weather, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(AtmosphericInformationList weather, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException, WebApplicationException {
+        entityStream.write('[');
+        for (int i = 0; i < weather.size(); i++) {
+            if (i > 0) {
+                entityStream.write(',');
+            }
+            AtmosphericInformation atmosphere = weather.get(i);
+            entityStream.write(atmosphere.toJson());
+        }
+        entityStream.write(']');
+    }
+}
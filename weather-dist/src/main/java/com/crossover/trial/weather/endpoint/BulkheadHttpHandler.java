@@ -0,0 +1,133 @@
+package com.crossover.trial.weather.endpoint;
+
+import com.crossover.trial.weather.common.JSONHelper;
+import com.crossover.trial.weather.exception.ErrorCode;
+import com.crossover.trial.weather.exception.GlobalExceptionHandler;
+import com.crossover.trial.weather.exception.WeatherException;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.RequestExecutorProvider;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.HttpStatus;
+
+import javax.ws.rs.core.MediaType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the requests of the wrapped handler on a separate thread pool per path prefix (bulkheads), so a flood of
+ * requests on one endpoint can only exhaust the threads and queue of its own pool. A request finding the queue of
+ * its pool full is answered 503 at once. Requests matching no prefix run on the Grizzly worker threads.
+ */
+public class BulkheadHttpHandler extends HttpHandler {
+
+    /**
+     * set while a request refused by a full bulkhead runs on the thread which tried to queue it
+     */
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+
+    private final HttpHandler handler;
+
+    /**
+     * bulkhead of each path prefix, in the order they are matched
+     */
+    private final Map<String, ThreadPoolExecutor> bulkheads = new LinkedHashMap<>();
+
+    private final RequestExecutorProvider workerThreadProvider = new RequestExecutorProvider.WorkerThreadProvider();
+
+    private final RequestExecutorProvider bulkheadProvider = this::getExecutor;
+
+    public BulkheadHttpHandler(HttpHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Serve the requests whose path is the prefix or under it on a pool of their own. Prefixes are matched in the order
+     * they are added, a longer prefix must be added before a shorter one it starts with.
+     *
+     * @param pathPrefix the path prefix of the requests, such as /query
+     * @param threads    number of threads of the pool, 0 to keep the requests on the Grizzly worker threads
+     * @param queueLimit number of requests waiting for a thread of the pool beyond which requests are refused
+     * @return this handler
+     */
+    public BulkheadHttpHandler withBulkhead(String pathPrefix, int threads, int queueLimit) {
+        if (threads <= 0) {
+            return this;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        String threadPrefix = "bulkhead" + pathPrefix.replace('/', '-') + "-";
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueLimit)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    REJECTED.set(Boolean.TRUE);
+                    try {
+                        runnable.run();
+                    } finally {
+                        REJECTED.remove();
+                    }
+                });
+        bulkheads.put(pathPrefix, executor);
+        return this;
+    }
+
+    @Override
+    public RequestExecutorProvider getRequestExecutorProvider() {
+        return bulkheadProvider;
+    }
+
+    private Executor getExecutor(Request request) {
+        String path = request.getRequestURI();
+        for (Map.Entry<String, ThreadPoolExecutor> bulkhead : bulkheads.entrySet()) {
+            if (isUnder(path, bulkhead.getKey())) {
+                return bulkhead.getValue();
+            }
+        }
+        return workerThreadProvider.getExecutor(request);
+    }
+
+    /**
+     * @return true if the path is the prefix or goes on with a segment after it, /collect matching /collect/ping but
+     *         not /collectors
+     */
+    private static boolean isUnder(String path, String pathPrefix) {
+        return path.startsWith(pathPrefix)
+                && (path.length() == pathPrefix.length() || path.charAt(pathPrefix.length()) == '/');
+    }
+
+    @Override
+    public void service(Request request, Response response) throws Exception {
+        if (REJECTED.get() != null) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE_503);
+            response.setHeader(Header.RetryAfter, String.valueOf(GlobalExceptionHandler.RETRY_AFTER));
+            response.setContentType(MediaType.APPLICATION_JSON);
+            response.getWriter().write(JSONHelper.toJson(GlobalExceptionHandler.getMessage(
+                    new WeatherException(ErrorCode.WEA_1006, "request", "Too many requests are waiting to be served."))));
+            return;
+        }
+
+        handler.service(request, response);
+    }
+
+    @Override
+    public void start() {
+        handler.start();
+    }
+
+    @Override
+    public void destroy() {
+        handler.destroy();
+        bulkheads.values().forEach(ThreadPoolExecutor::shutdown);
+    }
+}
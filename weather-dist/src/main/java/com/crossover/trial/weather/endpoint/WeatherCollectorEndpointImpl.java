@@ -5,14 +5,25 @@ import com.crossover.trial.weather.common.DataPointType;
 import com.crossover.trial.weather.common.JSONHelper;
 import com.crossover.trial.weather.entity.Airport;
 import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointRecord;
+import com.crossover.trial.weather.entity.DataPointResult;
+import com.crossover.trial.weather.entity.DataPointStreamResult;
+import com.crossover.trial.weather.exception.ErrorCode;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.service.AirportService;
 import com.crossover.trial.weather.service.WeatherService;
 import com.crossover.trial.weather.service.factory.ServiceRegistryFactory;
+import com.google.gson.JsonParseException;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 import static com.crossover.trial.weather.configuration.AppConfig.SERVER_STOP;
@@ -57,17 +68,51 @@ public class WeatherCollectorEndpointImpl implements WeatherCollectorEndpoint {
      * @param iataCode  the 3 letter airport code
      * @param pointType the point type, {@link DataPointType} for a complete list
      * @param dataPoint a json dict containing mean, first, second, third and count keys
-     * @return HTTP Response code
+     * @return HTTP Response code, 202 if the data point was queued in asynchronous ingest mode
      */
     @POST
     @Path("/weather/{iata}/{pointType}")
     public Response updateWeather(@PathParam("iata") String iataCode,
                                   @PathParam("pointType") String pointType,
                                   String dataPoint) throws WeatherException {
-        collectorService.addDataPoint(iataCode, pointType, JSONHelper.fromJson(dataPoint, DataPoint.class));
+        if (!collectorService.submitDataPoint(iataCode, pointType, JSONHelper.fromJson(dataPoint, DataPoint.class))) {
+            return Response.status(Response.Status.ACCEPTED).entity("Accepted").build();
+        }
         return Response.status(Response.Status.OK).entity("OK").build();
     }
 
+    /**
+     * Update the atmospheric information of many airports and point types in a single request.
+     *
+     * @param dataPoints a json list of dicts containing iata, pointType and dataPoint keys
+     * @return HTTP Response code and a json formatted list with the outcome of each record
+     */
+    @POST
+    @Path("/weather/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updateWeatherBatch(String dataPoints) throws WeatherException {
+        DataPointRecord[] records = parseRecords(dataPoints);
+        List<DataPointResult> results = collectorService.addDataPoints(Arrays.asList(records));
+        return Response.status(Response.Status.OK).entity(results).build();
+    }
+
+    /**
+     * Update the atmospheric information of many airports and point types from a stream of newline delimited json
+     * records, applied as soon as the collection site pauses, or by groups while it keeps sending, so it can keep a
+     * single request open for its updates however many they are.
+     *
+     * @param dataPoints a stream of json dicts containing iata, pointType and dataPoint keys
+     * @return HTTP Response code and a json formatted count of the applied and rejected records
+     */
+    @POST
+    @Path("/weather/stream")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updateWeatherStream(InputStream dataPoints) {
+        Reader reader = new InputStreamReader(dataPoints, StandardCharsets.UTF_8);
+        DataPointStreamResult result = collectorService.addDataPoints(reader);
+        return Response.status(Response.Status.OK).entity(result).build();
+    }
+
     /**
      * Return a list of known airports as a json formatted list
      *
@@ -129,6 +174,18 @@ public class WeatherCollectorEndpointImpl implements WeatherCollectorEndpoint {
                 .build();
     }
 
+    private DataPointRecord[] parseRecords(String dataPoints) throws WeatherException {
+        try {
+            DataPointRecord[] records = JSONHelper.fromJson(dataPoints, DataPointRecord[].class);
+            if (records == null) {
+                throw new WeatherException(ErrorCode.WEA_1003, "data points", "Batch should not be empty.");
+            }
+            return records;
+        } catch (JsonParseException parseException) {
+            throw new WeatherException(ErrorCode.WEA_1003, "data points", "Batch should be a json list.");
+        }
+    }
+
     @GET
     @Path("/exit")
     public Response exit() {
@@ -2,7 +2,13 @@ package com.crossover.trial.weather.endpoint;
 
 import com.crossover.trial.weather.WeatherQueryEndpoint;
 import com.crossover.trial.weather.common.JSONHelper;
+import com.crossover.trial.weather.entity.AirportWeather;
 import com.crossover.trial.weather.entity.AtmosphericInformation;
+import com.crossover.trial.weather.entity.DataPointSample;
+import com.crossover.trial.weather.entity.RouteWeather;
+import com.crossover.trial.weather.entity.WeatherEstimate;
+import com.crossover.trial.weather.entity.WeatherSummary;
+import com.crossover.trial.weather.exception.ErrorCode;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.service.StatisticService;
 import com.crossover.trial.weather.service.WeatherService;
@@ -12,10 +18,13 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import static com.crossover.trial.weather.configuration.AppConfig.ESTIMATE_NEIGHBOURS;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
@@ -26,6 +35,10 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
  */
 @Path("/query")
 public class WeatherQueryEndpointImpl implements WeatherQueryEndpoint {
+    private static final long DEFAULT_HISTORY_RANGE = TimeUnit.HOURS.toMillis(6);
+
+    private static final long DEFAULT_ESTIMATE_MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
     private WeatherService collectorService;
 
     private StatisticService statisticService;
@@ -62,11 +75,199 @@ public class WeatherQueryEndpointImpl implements WeatherQueryEndpoint {
     @Path("/weather/{iata}/{radius}")
     @Produces(MediaType.APPLICATION_JSON)
     public Response weather(@PathParam("iata") String iata, @PathParam("radius") String radiusString) throws WeatherException {
-        double radius = isBlank(radiusString) ? 0 : Double.valueOf(radiusString);
+        double radius = parseDistance(radiusString, "radius");
 
         List<AtmosphericInformation> whetherInformation = collectorService.getAirportWeather(iata, radius);
         statisticService.updateFrequencies(iata, radius);
 
         return Response.status(Response.Status.OK).entity(whetherInformation).build();
     }
+
+    /**
+     * Retrieve the weather of the given airport and the airports in the given radius, merged per data point type.
+     *
+     * @param iata         the three letter airport code
+     * @param radiusString the radius, in km, of the region
+     * @return an HTTP Response and the {@link WeatherSummary} of the region
+     */
+    @GET
+    @Path("/summary/{iata}/{radius}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response summary(@PathParam("iata") String iata, @PathParam("radius") String radiusString) throws WeatherException {
+        double radius = parseDistance(radiusString, "radius");
+
+        WeatherSummary summary = collectorService.getWeatherSummary(iata, radius);
+        return Response.status(Response.Status.OK).entity(summary).build();
+    }
+
+    /**
+     * Retrieve the most up to date atmospheric information of the airports in the given radius of a position.
+     *
+     * @param latitudeString  the latitude of the position in degrees
+     * @param longitudeString the longitude of the position in degrees
+     * @param radiusString    the radius, in km, from which to collect weather data
+     * @return an HTTP Response and a list of {@link AirportWeather}, nearest first
+     */
+    @GET
+    @Path("/position/{lat}/{long}/{radius}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response position(@PathParam("lat") String latitudeString, @PathParam("long") String longitudeString,
+                             @PathParam("radius") String radiusString) throws WeatherException {
+        double latitude = parseCoordinate(latitudeString);
+        double longitude = parseCoordinate(longitudeString);
+        double radius = parseDistance(radiusString, "radius");
+
+        List<AirportWeather> weather = collectorService.getPositionWeather(latitude, longitude, radius);
+        return Response.status(Response.Status.OK).entity(weather).build();
+    }
+
+    /**
+     * Retrieve the most up to date atmospheric information of the airports along the great-circle route between two
+     * airports.
+     *
+     * @param fromIata    the three letter code of the departure airport
+     * @param toIata      the three letter code of the arrival airport
+     * @param widthString the largest distance, in km, of an airport from the route
+     * @return an HTTP Response and a list of {@link RouteWeather}, in the order of the route
+     */
+    @GET
+    @Path("/corridor/{from}/{to}/{width}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response corridor(@PathParam("from") String fromIata, @PathParam("to") String toIata,
+                             @PathParam("width") String widthString) throws WeatherException {
+        double width = parseDistance(widthString, "corridor width");
+
+        List<RouteWeather> weather = collectorService.getRouteWeather(fromIata, toIata, width);
+        return Response.status(Response.Status.OK).entity(weather).build();
+    }
+
+    /**
+     * Estimate the weather at a position by inverse distance weighting of the weather of the nearest airports.
+     *
+     * @param latitudeString   the latitude of the position in degrees
+     * @param longitudeString  the longitude of the position in degrees
+     * @param neighboursString the number of nearest airports to estimate each point type from, 4 by default
+     * @param maxAgeString     how long ago in milliseconds the weather of an airport may have been last updated, a
+     *                         day by default
+     * @return an HTTP Response and the {@link WeatherEstimate}
+     */
+    @GET
+    @Path("/estimate/{lat}/{long}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response estimate(@PathParam("lat") String latitudeString, @PathParam("long") String longitudeString,
+                             @QueryParam("neighbours") String neighboursString,
+                             @QueryParam("maxAge") String maxAgeString) throws WeatherException {
+        double latitude = parseCoordinate(latitudeString);
+        double longitude = parseCoordinate(longitudeString);
+        int neighbours = isBlank(neighboursString) ? ESTIMATE_NEIGHBOURS : parseCount(neighboursString);
+        Long maxAge = parseMaxAge(maxAgeString);
+
+        WeatherEstimate estimate = collectorService.getWeatherEstimate(latitude, longitude, neighbours,
+                maxAge == null ? DEFAULT_ESTIMATE_MAX_AGE : maxAge);
+        return Response.status(Response.Status.OK).entity(estimate).build();
+    }
+
+    /**
+     * Retrieve the airports nearest to the given airport, the airport itself included, whose weather holds the given
+     * point types and was updated recently enough.
+     *
+     * @param iata         the three letter airport code
+     * @param countString  the number of airports to retrieve
+     * @param pointTypes   comma separated point types, {@link com.crossover.trial.weather.common.DataPointType}, the
+     *                     weather must hold. Any weather by default
+     * @param maxAgeString how long ago in milliseconds the weather may have been last updated. Any age by default
+     * @return an HTTP Response and a list of {@link AirportWeather}, nearest first
+     */
+    @GET
+    @Path("/nearest/{iata}/{count}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response nearest(@PathParam("iata") String iata, @PathParam("count") String countString,
+                            @QueryParam("pointTypes") String pointTypes, @QueryParam("maxAge") String maxAgeString)
+            throws WeatherException {
+        int count = parseCount(countString);
+        Long maxAge = parseMaxAge(maxAgeString);
+
+        List<AirportWeather> nearest = collectorService.getNearestWeather(iata, count, pointTypes, maxAge);
+        return Response.status(Response.Status.OK).entity(nearest).build();
+    }
+
+    /**
+     * Retrieve the data points of a type collected for an airport within a time range, oldest first, at the
+     * requested resolution.
+     *
+     * @param iata       the three letter airport code
+     * @param pointType  the point type, {@link com.crossover.trial.weather.common.DataPointType}
+     * @param fromString the start of the range, in milliseconds since UTC epoch, 6 hours before the end by default
+     * @param toString   the end of the range, in milliseconds since UTC epoch, now by default
+     * @param resolution raw for the collected data points, 1m, 15m or 1h for the data points merged over each
+     *                   minute, quarter hour or hour. Raw by default
+     * @return an HTTP Response and a list of {@link DataPointSample}
+     */
+    @GET
+    @Path("/history/{iata}/{pointType}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response history(@PathParam("iata") String iata, @PathParam("pointType") String pointType,
+                            @QueryParam("from") String fromString, @QueryParam("to") String toString,
+                            @QueryParam("resolution") String resolution) throws WeatherException {
+        long to = parseTime(toString, System.currentTimeMillis());
+        long from = parseTime(fromString, to - DEFAULT_HISTORY_RANGE);
+
+        List<DataPointSample> history = collectorService.getHistory(iata, pointType, resolution, from, to);
+        return Response.status(Response.Status.OK).entity(history).build();
+    }
+
+    private double parseCoordinate(String coordinate) {
+        try {
+            return Double.parseDouble(coordinate);
+        } catch (NumberFormatException exception) {
+            throw new WeatherException(ErrorCode.WEA_1003, "latitude/longitude", "Should be a number of degrees.");
+        }
+    }
+
+    /**
+     * @param distance the distance in km, 0 if not given
+     * @param dataType what the distance is, for the error message
+     * @return the distance
+     * @throws WeatherException if the distance is not a number or negative
+     */
+    private double parseDistance(String distance, String dataType) {
+        if (isBlank(distance)) {
+            return 0;
+        }
+
+        double value;
+        try {
+            value = Double.parseDouble(distance);
+        } catch (NumberFormatException exception) {
+            value = Double.NaN;
+        }
+        if (!(value >= 0)) {
+            throw new WeatherException(ErrorCode.WEA_1003, dataType, "Should be a number of km, not negative.");
+        }
+        return value;
+    }
+
+    private int parseCount(String count) {
+        try {
+            return Integer.parseInt(count);
+        } catch (NumberFormatException exception) {
+            throw new WeatherException(ErrorCode.WEA_1003, "airport count", "Should be an integer.");
+        }
+    }
+
+    private Long parseMaxAge(String maxAge) {
+        try {
+            return isBlank(maxAge) ? null : Long.valueOf(maxAge);
+        } catch (NumberFormatException exception) {
+            throw new WeatherException(ErrorCode.WEA_1003, "maximum age", "Should be a number of milliseconds.");
+        }
+    }
+
+    private long parseTime(String time, long defaultTime) {
+        try {
+            return isBlank(time) ? defaultTime : Long.parseLong(time);
+        } catch (NumberFormatException exception) {
+            throw new WeatherException(ErrorCode.WEA_1003, "time range", "Times should be milliseconds since UTC epoch.");
+        }
+    }
 }
@@ -62,4 +62,8 @@ public class Airport {
         }
         return false;
     }
+
+    public int hashCode() {
+        return getIata().hashCode();
+    }
 }
@@ -0,0 +1,64 @@
+package com.crossover.trial.weather.entity;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * The atmospheric information of an airport found by a location query, with the distance of the airport.
+ */
+public class AirportWeather {
+
+    /**
+     * the three letter IATA code
+     */
+    private final String iata;
+
+    /**
+     * latitude value in degrees
+     */
+    private final double latitude;
+
+    /**
+     * longitude value in degrees
+     */
+    private final double longitude;
+
+    /**
+     * distance in KM from the location of the query
+     */
+    private final double distance;
+
+    private final AtmosphericInformation weather;
+
+    public AirportWeather(Airport airport, double distance, AtmosphericInformation weather) {
+        this.iata = airport.getIata();
+        this.latitude = airport.getLatitude();
+        this.longitude = airport.getLongitude();
+        this.distance = distance;
+        this.weather = weather;
+    }
+
+    public String getIata() {
+        return iata;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public AtmosphericInformation getWeather() {
+        return weather;
+    }
+
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+}
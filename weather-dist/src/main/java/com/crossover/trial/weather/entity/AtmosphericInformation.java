@@ -1,112 +1,208 @@
 package com.crossover.trial.weather.entity;
 
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.common.JSONHelper;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * encapsulates sensor information for a particular location
+ * <p>
+ * Instances are immutable snapshots: an update publishes a new instance with the next version number, so readers
+ * can hold and serialise an instance while the weather of the airport keeps changing.
  */
 public class AtmosphericInformation {
 
     /**
      * temperature in degrees celsius
      */
-    private DataPoint temperature;
+    private final DataPoint temperature;
 
     /**
      * wind speed in km/h
      */
-    private DataPoint wind;
+    private final DataPoint wind;
 
     /**
      * humidity in percent
      */
-    private DataPoint humidity;
+    private final DataPoint humidity;
 
     /**
      * precipitation in cm
      */
-    private DataPoint precipitation;
+    private final DataPoint precipitation;
 
     /**
      * pressure in mmHg
      */
-    private DataPoint pressure;
+    private final DataPoint pressure;
 
     /**
      * cloud cover percent from 0 - 100 (integer)
      */
-    private DataPoint cloudCover;
+    private final DataPoint cloudCover;
 
     /**
      * the last time this data was updated, in milliseconds since UTC epoch
      */
-    private long lastUpdateTime;
+    private final long lastUpdateTime;
 
-    public AtmosphericInformation() {
+    /**
+     * the last time each point type was updated, indexed by {@link DataPointType} ordinal, 0 if never. Null in
+     * snapshots journaled before it was kept, their data points all dating from {@link #lastUpdateTime}
+     */
+    private final long[] updateTimes;
+
+    /**
+     * number of updates applied to the airport weather to produce this snapshot, 0 for no weather yet
+     */
+    private final long version;
 
+    /**
+     * UTF-8 json of this snapshot, serialised on first use. Never exposed as a property
+     */
+    private transient volatile byte[] json;
+
+    public AtmosphericInformation() {
+        this(null, null, null, null, null, null, 0, new long[DataPointType.values().length], 0);
     }
 
-    protected AtmosphericInformation(DataPoint temperature, DataPoint wind, DataPoint humidity, DataPoint precipitation, DataPoint pressure, DataPoint cloudCover) {
+    protected AtmosphericInformation(DataPoint temperature, DataPoint wind, DataPoint humidity, DataPoint precipitation,
+                                     DataPoint pressure, DataPoint cloudCover, long lastUpdateTime, long[] updateTimes,
+                                     long version) {
         this.temperature = temperature;
         this.wind = wind;
         this.humidity = humidity;
         this.precipitation = precipitation;
         this.pressure = pressure;
         this.cloudCover = cloudCover;
-        this.lastUpdateTime = System.currentTimeMillis();
+        this.lastUpdateTime = lastUpdateTime;
+        this.updateTimes = updateTimes;
+        this.version = version;
     }
 
-    public DataPoint getTemperature() {
-        return temperature;
+    /**
+     * Build the next snapshot of this weather.
+     *
+     * @param pointType  the type of the updated data point
+     * @param dataPoint  the new data point
+     * @param updateTime the time of the update, in milliseconds since UTC epoch
+     * @return a new snapshot holding the data point, this one is left unchanged
+     */
+    public AtmosphericInformation withDataPoint(DataPointType pointType, DataPoint dataPoint, long updateTime) {
+        long[] nextUpdateTimes = getUpdateTimes();
+        nextUpdateTimes[pointType.ordinal()] = updateTime;
+
+        return new AtmosphericInformation(
+                pointType == DataPointType.TEMPERATURE ? dataPoint : temperature,
+                pointType == DataPointType.WIND ? dataPoint : wind,
+                pointType == DataPointType.HUMIDITY ? dataPoint : humidity,
+                pointType == DataPointType.PRECIPITATION ? dataPoint : precipitation,
+                pointType == DataPointType.PRESSURE ? dataPoint : pressure,
+                pointType == DataPointType.CLOUD_COVER ? dataPoint : cloudCover,
+                updateTime,
+                nextUpdateTimes,
+                version + 1);
     }
 
-    public void setTemperature(DataPoint temperature) {
-        this.temperature = temperature;
+    /**
+     * The json of a snapshot is serialised once and shared by every response including it, an update of the airport
+     * weather publishing a new snapshot with no json yet.
+     *
+     * @return the UTF-8 encoded json of this snapshot, callers must not modify it
+     */
+    public byte[] toJson() {
+        byte[] result = json;
+        if (result == null) {
+            // concurrent first readers may both serialise, they produce the same bytes
+            result = JSONHelper.toJsonBytes(this);
+            json = result;
+        }
+        return result;
     }
 
-    public DataPoint getWind() {
-        return wind;
+    /**
+     * @param pointType the type of the data point
+     * @return the data point of the given type, or null if it was never collected
+     */
+    public DataPoint getDataPoint(DataPointType pointType) {
+        switch (pointType) {
+            case WIND:
+                return wind;
+            case TEMPERATURE:
+                return temperature;
+            case HUMIDITY:
+                return humidity;
+            case PRESSURE:
+                return pressure;
+            case CLOUD_COVER:
+                return cloudCover;
+            case PRECIPITATION:
+                return precipitation;
+            default:
+                return null;
+        }
     }
 
-    public void setWind(DataPoint wind) {
-        this.wind = wind;
+    public DataPoint getTemperature() {
+        return temperature;
     }
 
-    public DataPoint getHumidity() {
-        return humidity;
+    public DataPoint getWind() {
+        return wind;
     }
 
-    public void setHumidity(DataPoint humidity) {
-        this.humidity = humidity;
+    public DataPoint getHumidity() {
+        return humidity;
     }
 
     public DataPoint getPrecipitation() {
         return precipitation;
     }
 
-    public void setPrecipitation(DataPoint precipitation) {
-        this.precipitation = precipitation;
-    }
-
     public DataPoint getPressure() {
         return pressure;
     }
 
-    public void setPressure(DataPoint pressure) {
-        this.pressure = pressure;
-    }
-
     public DataPoint getCloudCover() {
         return cloudCover;
     }
 
-    public void setCloudCover(DataPoint cloudCover) {
-        this.cloudCover = cloudCover;
-    }
-
     public long getLastUpdateTime() {
         return this.lastUpdateTime;
     }
 
-    public void setLastUpdateTime(long lastUpdateTime) {
-        this.lastUpdateTime = lastUpdateTime;
+    /**
+     * @param pointType the type of the data point
+     * @return the last time the data point of the given type was updated, in milliseconds since UTC epoch, 0 if it
+     * was never collected
+     */
+    public long getUpdateTime(DataPointType pointType) {
+        if (updateTimes == null) {
+            return getDataPoint(pointType) == null ? 0 : lastUpdateTime;
+        }
+        return updateTimes[pointType.ordinal()];
+    }
+
+    /**
+     * @return the last time each point type was updated, in milliseconds since UTC epoch, in the order of
+     * {@link DataPointType}, 0 for the types never collected. A copy the caller may change, left out of the json
+     * served, which would otherwise depend on the order of the types
+     */
+    @JsonIgnore
+    public long[] getUpdateTimes() {
+        long[] result = new long[DataPointType.values().length];
+        for (DataPointType pointType : DataPointType.values()) {
+            result[pointType.ordinal()] = getUpdateTime(pointType);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of updates behind this snapshot, internal to the server and left out of the json served
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version;
     }
 }
@@ -0,0 +1,18 @@
+package com.crossover.trial.weather.entity;
+
+import java.util.ArrayList;
+
+/**
+ * List of atmospheric information returned by the weather query, written to json by concatenating the json
+ * serialised once by each snapshot, see {@link AtmosphericInformation#toJson()}
+ */
+public class AtmosphericInformationList extends ArrayList<AtmosphericInformation> {
+    private static final long serialVersionUID = 1L;
+
+    public AtmosphericInformationList() {
+    }
+
+    public AtmosphericInformationList(int initialCapacity) {
+        super(initialCapacity);
+    }
+}
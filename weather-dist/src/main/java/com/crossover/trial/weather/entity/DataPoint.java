@@ -9,31 +9,34 @@ import java.math.BigDecimal;
  * A collected point, including some information about the range of collected values
  *
  * @author code test administrator
+ * <p>
+ * Data points are immutable, they are shared between the atmospheric information snapshots of an airport.
  */
 public class DataPoint {
 
-    private double mean = 0.0;
+    private final double mean;
 
-    private int first = 0;
+    private final int first;
 
-    private int second = 0;
+    private final int second;
 
-    private int third = 0;
+    private final int third;
 
-    private int count = 0;
+    private final int count;
 
     /**
      * private constructor, use the builder to create this object
      */
     private DataPoint() {
+        this(0, 0, 0.0, 0, 0);
     }
 
     protected DataPoint(int first, int second, double mean, int third, int count) {
-        this.setFirst(first);
-        this.setMean(mean);
-        this.setSecond(second);
-        this.setThird(third);
-        this.setCount(count);
+        this.first = first;
+        this.mean = mean;
+        this.second = second;
+        this.third = third;
+        this.count = count;
     }
 
     /**
@@ -43,10 +46,6 @@ public class DataPoint {
         return mean;
     }
 
-    public void setMean(double mean) {
-        this.mean = mean;
-    }
-
     /**
      * 1st quartile -- useful as a lower bound
      */
@@ -54,10 +53,6 @@ public class DataPoint {
         return first;
     }
 
-    protected void setFirst(int first) {
-        this.first = first;
-    }
-
     /**
      * 2nd quartile -- median value
      */
@@ -65,10 +60,6 @@ public class DataPoint {
         return second;
     }
 
-    protected void setSecond(int second) {
-        this.second = second;
-    }
-
     /**
      * 3rd quartile value -- less noisy upper value
      */
@@ -76,10 +67,6 @@ public class DataPoint {
         return third;
     }
 
-    protected void setThird(int third) {
-        this.third = third;
-    }
-
     /**
      * the total number of measurements
      */
@@ -87,10 +74,6 @@ public class DataPoint {
         return count;
     }
 
-    protected void setCount(int count) {
-        this.count = count;
-    }
-
     public String toString() {
         return ReflectionToStringBuilder.toString(this, ToStringStyle.NO_CLASS_NAME_STYLE);
     }
@@ -105,6 +88,17 @@ public class DataPoint {
                 && dataPoint.getCount() == this.count;
     }
 
+    @Override
+    public int hashCode() {
+        // 0.0 and -0.0 are equal means, so they must hash the same
+        int result = Double.hashCode(mean == 0 ? 0.0 : mean);
+        result = 31 * result + first;
+        result = 31 * result + second;
+        result = 31 * result + third;
+        result = 31 * result + count;
+        return result;
+    }
+
     static public class Builder {
         int first;
         double mean;
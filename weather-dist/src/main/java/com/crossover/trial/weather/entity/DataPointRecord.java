@@ -0,0 +1,62 @@
+package com.crossover.trial.weather.entity;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * A data point addressed to an airport and a point type, the unit of batched weather updates.
+ */
+public class DataPointRecord {
+
+    /**
+     * the three letter IATA code
+     */
+    private String iata;
+
+    /**
+     * the point type, {@link com.crossover.trial.weather.common.DataPointType} for a complete list
+     */
+    private String pointType;
+
+    /**
+     * the collected data point
+     */
+    private DataPoint dataPoint;
+
+    public DataPointRecord() {
+    }
+
+    public DataPointRecord(String iata, String pointType, DataPoint dataPoint) {
+        this.iata = iata;
+        this.pointType = pointType;
+        this.dataPoint = dataPoint;
+    }
+
+    public String getIata() {
+        return iata;
+    }
+
+    public void setIata(String iata) {
+        this.iata = iata;
+    }
+
+    public String getPointType() {
+        return pointType;
+    }
+
+    public void setPointType(String pointType) {
+        this.pointType = pointType;
+    }
+
+    public DataPoint getDataPoint() {
+        return dataPoint;
+    }
+
+    public void setDataPoint(DataPoint dataPoint) {
+        this.dataPoint = dataPoint;
+    }
+
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+}
@@ -0,0 +1,60 @@
+package com.crossover.trial.weather.entity;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * The outcome of applying one {@link DataPointRecord} of a batched weather update.
+ */
+public class DataPointResult {
+
+    /**
+     * the three letter IATA code of the record
+     */
+    private String iata;
+
+    /**
+     * the point type of the record
+     */
+    private String pointType;
+
+    /**
+     * HTTP status the record would have received as a single update
+     */
+    private int status;
+
+    /**
+     * "OK" or the reason why the record was rejected
+     */
+    private String message;
+
+    public DataPointResult() {
+    }
+
+    public DataPointResult(String iata, String pointType, int status, String message) {
+        this.iata = iata;
+        this.pointType = pointType;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getIata() {
+        return iata;
+    }
+
+    public String getPointType() {
+        return pointType;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+}
@@ -0,0 +1,37 @@
+package com.crossover.trial.weather.entity;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * A data point of an airport history, with the time it was collected
+ */
+public class DataPointSample {
+
+    /**
+     * the time the data point was collected, in milliseconds since UTC epoch
+     */
+    private long time;
+
+    private DataPoint dataPoint;
+
+    public DataPointSample() {
+    }
+
+    public DataPointSample(long time, DataPoint dataPoint) {
+        this.time = time;
+        this.dataPoint = dataPoint;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public DataPoint getDataPoint() {
+        return dataPoint;
+    }
+
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+}
@@ -0,0 +1,91 @@
+package com.crossover.trial.weather.entity;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a streamed weather update: the records are counted as they are applied, and only the first rejected
+ * ones are reported, see {@link com.crossover.trial.weather.configuration.AppConfig#STREAM_MAX_REJECTIONS}.
+ */
+public class DataPointStreamResult {
+
+    /**
+     * number of records read from the stream
+     */
+    private long received;
+
+    /**
+     * number of records applied, or queued to be applied in asynchronous ingest mode
+     */
+    private long applied;
+
+    /**
+     * number of records rejected
+     */
+    private long rejected;
+
+    /**
+     * the first rejected records, in the order they were rejected: on validation, or once their airport could not
+     * be written
+     */
+    private final List<DataPointResult> rejections = new ArrayList<>();
+
+    /**
+     * why the stream could not be read to its end, null if it was
+     */
+    private String error;
+
+    private final transient int maxRejections;
+
+    public DataPointStreamResult(int maxRejections) {
+        this.maxRejections = maxRejections;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<DataPointResult> getRejections() {
+        return rejections;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @param result the outcome of the next record of the stream
+     */
+    public void addResult(DataPointResult result) {
+        received++;
+        if (HttpStatus.isSuccess(result.getStatus())) {
+            applied++;
+            return;
+        }
+
+        rejected++;
+        if (rejections.size() < maxRejections) {
+            rejections.add(result);
+        }
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+}
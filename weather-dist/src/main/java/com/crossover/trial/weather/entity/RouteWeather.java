@@ -0,0 +1,75 @@
+package com.crossover.trial.weather.entity;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * The atmospheric information of an airport along a route, with the position of the airport relative to the route.
+ */
+public class RouteWeather {
+
+    /**
+     * the three letter IATA code
+     */
+    private final String iata;
+
+    /**
+     * latitude value in degrees
+     */
+    private final double latitude;
+
+    /**
+     * longitude value in degrees
+     */
+    private final double longitude;
+
+    /**
+     * distance in KM from the departure to the point of the route closest to the airport
+     */
+    private final double routeDistance;
+
+    /**
+     * distance in KM from the airport to the route
+     */
+    private final double offRouteDistance;
+
+    private final AtmosphericInformation weather;
+
+    public RouteWeather(Airport airport, double routeDistance, double offRouteDistance,
+                        AtmosphericInformation weather) {
+        this.iata = airport.getIata();
+        this.latitude = airport.getLatitude();
+        this.longitude = airport.getLongitude();
+        this.routeDistance = routeDistance;
+        this.offRouteDistance = offRouteDistance;
+        this.weather = weather;
+    }
+
+    public String getIata() {
+        return iata;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getRouteDistance() {
+        return routeDistance;
+    }
+
+    public double getOffRouteDistance() {
+        return offRouteDistance;
+    }
+
+    public AtmosphericInformation getWeather() {
+        return weather;
+    }
+
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+}
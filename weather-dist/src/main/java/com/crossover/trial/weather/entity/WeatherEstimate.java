@@ -0,0 +1,158 @@
+package com.crossover.trial.weather.entity;
+
+import com.crossover.trial.weather.common.DataPointAccumulator;
+import com.crossover.trial.weather.common.DataPointType;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * The weather estimated at a position from the weather of the nearest airports, by inverse distance weighting: each
+ * data point is the average of the data points of its type at the nearest airports, weighted by the inverse square of
+ * their distance.
+ */
+public class WeatherEstimate {
+
+    /**
+     * distance in KM under which an airport weighs as if it was at this distance, so an airport at the position
+     * dominates the estimate without dividing by zero
+     */
+    private static final double MIN_DISTANCE = 0.001;
+
+    /**
+     * latitude value in degrees
+     */
+    private final double latitude;
+
+    /**
+     * longitude value in degrees
+     */
+    private final double longitude;
+
+    private final DataPoint temperature;
+
+    private final DataPoint wind;
+
+    private final DataPoint humidity;
+
+    private final DataPoint precipitation;
+
+    private final DataPoint pressure;
+
+    private final DataPoint cloudCover;
+
+    private WeatherEstimate(Builder builder) {
+        this.latitude = builder.latitude;
+        this.longitude = builder.longitude;
+        this.temperature = builder.estimate(DataPointType.TEMPERATURE);
+        this.wind = builder.estimate(DataPointType.WIND);
+        this.humidity = builder.estimate(DataPointType.HUMIDITY);
+        this.precipitation = builder.estimate(DataPointType.PRECIPITATION);
+        this.pressure = builder.estimate(DataPointType.PRESSURE);
+        this.cloudCover = builder.estimate(DataPointType.CLOUD_COVER);
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public DataPoint getTemperature() {
+        return temperature;
+    }
+
+    public DataPoint getWind() {
+        return wind;
+    }
+
+    public DataPoint getHumidity() {
+        return humidity;
+    }
+
+    public DataPoint getPrecipitation() {
+        return precipitation;
+    }
+
+    public DataPoint getPressure() {
+        return pressure;
+    }
+
+    public DataPoint getCloudCover() {
+        return cloudCover;
+    }
+
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+
+    /**
+     * Accumulates the weather of the airports nearest to the position, nearest first, until each point type has data
+     * points from enough airports. Not thread safe.
+     */
+    public static class Builder {
+        private final double latitude;
+
+        private final double longitude;
+
+        private final int neighbours;
+
+        private final DataPointAccumulator[] accumulators = new DataPointAccumulator[DataPointType.values().length];
+
+        private final int[] neighbourCounts = new int[DataPointType.values().length];
+
+        /**
+         * number of point types having data points from less than {@link #neighbours} airports
+         */
+        private int incompleteTypes = DataPointType.values().length;
+
+        /**
+         * @param latitude   latitude of the position in degrees
+         * @param longitude  longitude of the position in degrees
+         * @param neighbours the number of nearest airports to estimate each point type from
+         */
+        public Builder(double latitude, double longitude, int neighbours) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.neighbours = neighbours;
+
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i] = new DataPointAccumulator();
+            }
+        }
+
+        /**
+         * @param information      the atmospheric information of the next nearest airport
+         * @param distance         the distance in KM of the airport from the position
+         * @param oldestUpdateTime the data points updated before this time, in milliseconds since UTC epoch, are
+         *                         ignored
+         * @return false once every point type has data points from enough airports
+         */
+        public boolean withAirport(AtmosphericInformation information, double distance, long oldestUpdateTime) {
+            double weight = 1 / Math.pow(Math.max(distance, MIN_DISTANCE), 2);
+
+            for (DataPointType pointType : DataPointType.values()) {
+                DataPoint dataPoint = information.getDataPoint(pointType);
+                int type = pointType.ordinal();
+
+                if (dataPoint != null && neighbourCounts[type] < neighbours
+                        && information.getUpdateTime(pointType) >= oldestUpdateTime) {
+                    accumulators[type].add(dataPoint, weight);
+                    if (++neighbourCounts[type] == neighbours) {
+                        incompleteTypes--;
+                    }
+                }
+            }
+            return incompleteTypes > 0;
+        }
+
+        public WeatherEstimate build() {
+            return new WeatherEstimate(this);
+        }
+
+        private DataPoint estimate(DataPointType pointType) {
+            return accumulators[pointType.ordinal()].toDataPoint();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.crossover.trial.weather.entity;
+
+import com.crossover.trial.weather.common.DataPointAccumulator;
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.common.WeatherHelper;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * The weather of a region, each data point merging the data points of its type collected by the airports of the
+ * region, see {@link DataPointAccumulator}.
+ */
+public class WeatherSummary {
+
+    /**
+     * number of airports in the region
+     */
+    private final int airportCount;
+
+    /**
+     * number of airports of the region having atmospheric information
+     */
+    private final int reportingAirportCount;
+
+    private final DataPoint temperature;
+
+    private final DataPoint wind;
+
+    private final DataPoint humidity;
+
+    private final DataPoint precipitation;
+
+    private final DataPoint pressure;
+
+    private final DataPoint cloudCover;
+
+    /**
+     * the latest update time of the reporting airports, in milliseconds since UTC epoch, 0 if none reports
+     */
+    private final long lastUpdateTime;
+
+    private WeatherSummary(Builder builder) {
+        this.airportCount = builder.airportCount;
+        this.reportingAirportCount = builder.reportingAirportCount;
+        this.temperature = builder.merge(DataPointType.TEMPERATURE);
+        this.wind = builder.merge(DataPointType.WIND);
+        this.humidity = builder.merge(DataPointType.HUMIDITY);
+        this.precipitation = builder.merge(DataPointType.PRECIPITATION);
+        this.pressure = builder.merge(DataPointType.PRESSURE);
+        this.cloudCover = builder.merge(DataPointType.CLOUD_COVER);
+        this.lastUpdateTime = builder.lastUpdateTime;
+    }
+
+    public int getAirportCount() {
+        return airportCount;
+    }
+
+    public int getReportingAirportCount() {
+        return reportingAirportCount;
+    }
+
+    public DataPoint getTemperature() {
+        return temperature;
+    }
+
+    public DataPoint getWind() {
+        return wind;
+    }
+
+    public DataPoint getHumidity() {
+        return humidity;
+    }
+
+    public DataPoint getPrecipitation() {
+        return precipitation;
+    }
+
+    public DataPoint getPressure() {
+        return pressure;
+    }
+
+    public DataPoint getCloudCover() {
+        return cloudCover;
+    }
+
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+
+    /**
+     * Accumulates the weather of the airports of a region one at a time, so the region never has to be held in a
+     * list. Not thread safe.
+     */
+    public static class Builder {
+        private final DataPointAccumulator[] accumulators = new DataPointAccumulator[DataPointType.values().length];
+
+        private int airportCount;
+
+        private int reportingAirportCount;
+
+        private long lastUpdateTime;
+
+        public Builder() {
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i] = new DataPointAccumulator();
+            }
+        }
+
+        /**
+         * @param information the atmospheric information of an airport of the region, null if it has none
+         */
+        public Builder withAirport(AtmosphericInformation information) {
+            airportCount++;
+            if (!WeatherHelper.isNotEmpty(information)) {
+                return this;
+            }
+
+            reportingAirportCount++;
+            lastUpdateTime = Math.max(lastUpdateTime, information.getLastUpdateTime());
+            for (DataPointType pointType : DataPointType.values()) {
+                DataPoint dataPoint = information.getDataPoint(pointType);
+                if (dataPoint != null) {
+                    accumulators[pointType.ordinal()].add(dataPoint);
+                }
+            }
+            return this;
+        }
+
+        public WeatherSummary build() {
+            return new WeatherSummary(this);
+        }
+
+        private DataPoint merge(DataPointType pointType) {
+            return accumulators[pointType.ordinal()].toDataPoint();
+        }
+    }
+}
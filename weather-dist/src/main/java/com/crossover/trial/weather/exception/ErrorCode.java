@@ -13,7 +13,13 @@ public enum ErrorCode {
     WEA_1003(HttpStatus.BAD_REQUEST_400),
 
     // Duplicate data
-    WEA_1004(HttpStatus.CONFLICT_409);
+    WEA_1004(HttpStatus.CONFLICT_409),
+
+    // Data could not be stored
+    WEA_1005(HttpStatus.INTERNAL_SERVER_ERROR_500),
+
+    // Data could not be accepted for now
+    WEA_1006(HttpStatus.SERVICE_UNAVAILABLE_503);
 
     private int httpStatus;
 
@@ -4,6 +4,7 @@ package com.crossover.trial.weather.exception;
 import com.crossover.trial.weather.common.JSONHelper;
 import jersey.repackaged.com.google.common.collect.ImmutableMap;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -14,20 +15,43 @@ import static com.crossover.trial.weather.exception.ErrorCode.*;
 @Provider
 public class GlobalExceptionHandler implements ExceptionMapper<WeatherException> {
 
+    /**
+     * seconds a client is told to wait before retrying a request refused for now
+     */
+    public static final int RETRY_AFTER = 1;
+
     private static final ImmutableMap<ErrorCode, String> MESSAGES = ImmutableMap.<ErrorCode, String>builder()
             .put(WEA_1001, "Could not update atmospheric data. %1$s")
             .put(WEA_1002, "The %1$s is not found. Please check your provided %2$s information again")
             .put(WEA_1003, "Incorrect format of %1$s information. %2$s")
             .put(WEA_1004, "Duplication of %1$s")
+            .put(WEA_1005, "Could not store the %1$s. %2$s")
+            .put(WEA_1006, "Could not accept the %1$s for now. %2$s")
             .build();
 
     @Override
     public Response toResponse(WeatherException exception) {
-        String message = String.format(MESSAGES.get(exception.getErrorCode()), exception.getParams());
+        String message = getMessage(exception);
 
-        return Response.status(exception.getErrorCode().getHttpStatus())
+        Response.ResponseBuilder response = Response.status(exception.getErrorCode().getHttpStatus())
                 .entity(JSONHelper.toJson(message))
-                .type(MediaType.APPLICATION_JSON)
-                .build();
+                .type(MediaType.APPLICATION_JSON);
+        if (exception.getErrorCode() == WEA_1006) {
+            response.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER);
+        }
+        return response.build();
+    }
+
+    /**
+     * Build the client facing message of an exception
+     *
+     * @param exception the exception to describe
+     * @return the formatted message of its error code, or the raw message if it has no error code
+     */
+    public static String getMessage(WeatherException exception) {
+        if (exception.getErrorCode() == null) {
+            return exception.getMessage();
+        }
+        return String.format(MESSAGES.get(exception.getErrorCode()), exception.getParams());
     }
 }
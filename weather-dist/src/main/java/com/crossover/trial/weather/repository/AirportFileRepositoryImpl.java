@@ -0,0 +1,194 @@
+package com.crossover.trial.weather.repository;
+
+import com.crossover.trial.weather.common.AirportHelper;
+import com.crossover.trial.weather.entity.Airport;
+import com.crossover.trial.weather.repository.journal.Journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+import static com.crossover.trial.weather.configuration.AppConfig.FILE_REPOSITORY_COMPACTION_THRESHOLD;
+import static com.crossover.trial.weather.configuration.AppConfig.FILE_REPOSITORY_DIRECTORY;
+
+/**
+ * Airports kept in memory like {@link AirportInMemoryRepositoryImpl} and recorded in a {@link Journal}, from which
+ * they are recovered on restart. A change returns once it is on disk.
+ */
+public class AirportFileRepositoryImpl implements AirportRepository {
+    private static AirportRepository instance;
+
+    private final AirportInMemoryRepositoryImpl airports = new AirportInMemoryRepositoryImpl();
+
+    private final Journal<Airport> journal;
+
+    AirportFileRepositoryImpl(File directory, int compactionThreshold) {
+        journal = new Journal<>(directory, "airports", new AirportCodec(), compactionThreshold,
+                new Journal.Listener<Airport>() {
+                    @Override
+                    public void put(String key, Airport airport) {
+                        airports.addAirport(airport.getIata(), airport.getLatitude(), airport.getLongitude());
+                    }
+
+                    @Override
+                    public void delete(String key) {
+                        airports.delete(key);
+                    }
+
+                    @Override
+                    public void clear() {
+                        airports.clear();
+                    }
+                });
+    }
+
+    public static synchronized AirportRepository getInstance() {
+        if (instance == null) {
+            instance = new AirportFileRepositoryImpl(new File(FILE_REPOSITORY_DIRECTORY), FILE_REPOSITORY_COMPACTION_THRESHOLD);
+        }
+
+        return instance;
+    }
+
+    @Override
+    public Airport findAirport(String iataCode) {
+        return airports.findAirport(iataCode);
+    }
+
+    @Override
+    public boolean isExist(String iataCode) {
+        return airports.isExist(iataCode);
+    }
+
+    @Override
+    public List<Airport> findAll() {
+        return airports.findAll();
+    }
+
+    @Override
+    public Set<String> getAllAirportCodes() {
+        return airports.getAllAirportCodes();
+    }
+
+    @Override
+    public List<Airport> findWithinRadius(double latitude, double longitude, double radius) {
+        return airports.findWithinRadius(latitude, longitude, radius);
+    }
+
+    @Override
+    public List<Airport> findNeighbours(String iataCode, double radius) {
+        return airports.findNeighbours(iataCode, radius);
+    }
+
+    @Override
+    public void forEachNeighbour(String iataCode, double radius, Consumer<Airport> visitor) {
+        airports.forEachNeighbour(iataCode, radius, visitor);
+    }
+
+    @Override
+    public void forEachWithinRadius(double latitude, double longitude, double radius,
+                                    BiConsumer<Airport, Double> visitor) {
+        airports.forEachWithinRadius(latitude, longitude, radius, visitor);
+    }
+
+    @Override
+    public void forEachNearest(double latitude, double longitude, BiPredicate<Airport, Double> visitor) {
+        airports.forEachNearest(latitude, longitude, visitor);
+    }
+
+    @Override
+    public Airport addAirport(String iataCode, double latitude, double longitude) {
+        Airport airport;
+        long sequence;
+
+        // journal the changes in the order they are applied
+        synchronized (this) {
+            airport = airports.addAirport(iataCode, latitude, longitude);
+            sequence = journal.put(AirportHelper.toIataKey(iataCode), airport);
+        }
+        journal.awaitDurable(sequence);
+
+        return airport;
+    }
+
+    @Override
+    public void addAirports(Collection<Airport> airports) {
+        long sequence = 0;
+
+        // the airports share the disk write of the last one
+        synchronized (this) {
+            this.airports.addAirports(airports);
+            for (Airport airport : airports) {
+                sequence = journal.put(AirportHelper.toIataKey(airport.getIata()), airport);
+            }
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public boolean delete(String iataCode) {
+        long sequence;
+
+        synchronized (this) {
+            if (!airports.delete(iataCode)) {
+                return false;
+            }
+            sequence = journal.delete(AirportHelper.toIataKey(iataCode));
+        }
+        journal.awaitDurable(sequence);
+
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        long sequence;
+
+        synchronized (this) {
+            airports.clear();
+            sequence = journal.clear();
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    /**
+     * Journal bytes of an airport: its IATA code as given, latitude and longitude
+     */
+    private static class AirportCodec implements Journal.Codec<Airport> {
+        @Override
+        public byte[] encode(Airport airport) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeUTF(airport.getIata());
+                out.writeDouble(airport.getLatitude());
+                out.writeDouble(airport.getLongitude());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public Airport decode(String key, byte[] bytes) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                Airport airport = new Airport();
+                airport.setIata(in.readUTF());
+                airport.setLatitude(in.readDouble());
+                airport.setLongitude(in.readDouble());
+                return airport;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
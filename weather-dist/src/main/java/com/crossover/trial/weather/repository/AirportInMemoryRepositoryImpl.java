@@ -1,27 +1,63 @@
 package com.crossover.trial.weather.repository;
 
+import com.crossover.trial.weather.common.AirportHelper;
 import com.crossover.trial.weather.entity.Airport;
+import com.crossover.trial.weather.repository.index.SpatialGridIndex;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static com.crossover.trial.weather.configuration.AppConfig.HOT_RADII;
+
 public class AirportInMemoryRepositoryImpl implements AirportRepository {
+    /**
+     * cell size of the spatial index in degrees, roughly 111km at the equator
+     */
+    private static final double INDEX_CELL_SIZE = 1.0;
+
+    /**
+     * margin in KM added to a hot radius when looking for the airports whose neighbour lists may change, the distance
+     * from an airport to another possibly differing from the reverse distance in the last bits
+     */
+    private static final double NEIGHBOUR_MARGIN = 1e-6;
 
     private static AirportRepository instance;
 
     private ReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
-     * all known airports
+     * all known airports, key by canonical IATA code {@link AirportHelper#toIataKey(String)}
+     */
+    private Map<String, Airport> AIRPORTS_CACHE = new HashMap<>();
+
+    /**
+     * spatial index over {@link #AIRPORTS_CACHE} for radius queries
+     */
+    private SpatialGridIndex AIRPORTS_INDEX = new SpatialGridIndex(INDEX_CELL_SIZE);
+
+    /**
+     * airports within each hot radius of each airport, itself included, key by radius then canonical IATA code
      */
-    private Set<Airport> AIRPORTS_CACHE = new HashSet<>();
+    private final Map<Double, Map<String, List<Airport>>> NEIGHBOURS = new HashMap<>();
 
-    private AirportInMemoryRepositoryImpl() {
+    /**
+     * package visible for the file repository, which keeps its state in a private instance
+     */
+    AirportInMemoryRepositoryImpl() {
+        for (double radius : HOT_RADII) {
+            NEIGHBOURS.put(radius, new HashMap<>());
+        }
     }
 
     public static synchronized AirportRepository getInstance() {
@@ -35,9 +71,7 @@ public class AirportInMemoryRepositoryImpl implements AirportRepository {
     @Override
     public Airport findAirport(String iataCode) {
         lock.readLock().lock();
-        Airport result = AIRPORTS_CACHE.stream()
-                .filter(airport -> airport.getIata().equals(iataCode))
-                .findFirst().orElse(null);
+        Airport result = AIRPORTS_CACHE.get(AirportHelper.toIataKey(iataCode));
         lock.readLock().unlock();
 
         return result;
@@ -46,8 +80,7 @@ public class AirportInMemoryRepositoryImpl implements AirportRepository {
     @Override
     public boolean isExist(String iataCode) {
         lock.readLock().lock();
-        boolean result = AIRPORTS_CACHE.stream()
-                .anyMatch(airport -> airport.getIata().equalsIgnoreCase(iataCode));
+        boolean result = AIRPORTS_CACHE.containsKey(AirportHelper.toIataKey(iataCode));
         lock.readLock().unlock();
 
         return result;
@@ -56,7 +89,7 @@ public class AirportInMemoryRepositoryImpl implements AirportRepository {
     @Override
     public List<Airport> findAll() {
         lock.readLock().lock();
-        ArrayList<Airport> copyData = new ArrayList<>(AIRPORTS_CACHE);
+        ArrayList<Airport> copyData = new ArrayList<>(AIRPORTS_CACHE.values());
         lock.readLock().unlock();
 
         return copyData;
@@ -65,12 +98,90 @@ public class AirportInMemoryRepositoryImpl implements AirportRepository {
     @Override
     public Set<String> getAllAirportCodes() {
         lock.readLock().lock();
-        Set<String> result = AIRPORTS_CACHE.stream().map(Airport::getIata).collect(Collectors.toSet());
+        Set<String> result = AIRPORTS_CACHE.values().stream().map(Airport::getIata).collect(Collectors.toSet());
         lock.readLock().unlock();
 
         return result;
     }
 
+    @Override
+    public List<Airport> findWithinRadius(double latitude, double longitude, double radius) {
+        List<Airport> result = new ArrayList<>();
+
+        lock.readLock().lock();
+        AIRPORTS_INDEX.forEachWithinRadius(latitude, longitude, radius, (airport, distance) -> result.add(airport));
+        lock.readLock().unlock();
+
+        return result;
+    }
+
+    @Override
+    public List<Airport> findNeighbours(String iataCode, double radius) {
+        Map<String, List<Airport>> hotNeighbours = NEIGHBOURS.get(radius);
+        List<Airport> result;
+
+        lock.readLock().lock();
+        try {
+            if (hotNeighbours != null) {
+                result = new ArrayList<>(hotNeighbours.getOrDefault(AirportHelper.toIataKey(iataCode),
+                        Collections.emptyList()));
+            } else {
+                List<Airport> neighbours = new ArrayList<>();
+                visitNeighbours(iataCode, radius, neighbours::add);
+                result = neighbours;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return result;
+    }
+
+    @Override
+    public void forEachNeighbour(String iataCode, double radius, Consumer<Airport> visitor) {
+        Map<String, List<Airport>> hotNeighbours = NEIGHBOURS.get(radius);
+
+        lock.readLock().lock();
+        try {
+            if (hotNeighbours != null) {
+                hotNeighbours.getOrDefault(AirportHelper.toIataKey(iataCode), Collections.emptyList()).forEach(visitor);
+            } else {
+                visitNeighbours(iataCode, radius, visitor);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void visitNeighbours(String iataCode, double radius, Consumer<Airport> visitor) {
+        Airport center = AIRPORTS_CACHE.get(AirportHelper.toIataKey(iataCode));
+        if (center != null) {
+            AIRPORTS_INDEX.forEachWithinRadius(center.getLatitude(), center.getLongitude(), radius,
+                    (airport, distance) -> visitor.accept(airport));
+        }
+    }
+
+    @Override
+    public void forEachWithinRadius(double latitude, double longitude, double radius,
+                                    BiConsumer<Airport, Double> visitor) {
+        lock.readLock().lock();
+        try {
+            AIRPORTS_INDEX.forEachWithinRadius(latitude, longitude, radius, visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachNearest(double latitude, double longitude, BiPredicate<Airport, Double> visitor) {
+        lock.readLock().lock();
+        try {
+            AIRPORTS_INDEX.forEachNearest(latitude, longitude, visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public Airport addAirport(String iataCode, double latitude, double longitude) {
         Airport airport = new Airport();
@@ -79,27 +190,106 @@ public class AirportInMemoryRepositoryImpl implements AirportRepository {
         airport.setLongitude(longitude);
 
         lock.writeLock().lock();
-        AIRPORTS_CACHE.add(airport);
+        Airport previous = AIRPORTS_CACHE.put(AirportHelper.toIataKey(iataCode), airport);
+        if (previous != null) {
+            unlinkNeighbours(previous);
+            AIRPORTS_INDEX.remove(previous);
+        }
+        AIRPORTS_INDEX.add(airport);
+        linkNeighbours(airport);
         lock.writeLock().unlock();
 
         return airport;
     }
 
     @Override
-    public boolean delete(String iataCode) {
-        boolean result;
+    public void addAirports(Collection<Airport> airports) {
+        lock.writeLock().lock();
+        for (Airport airport : airports) {
+            Airport previous = AIRPORTS_CACHE.put(AirportHelper.toIataKey(airport.getIata()), airport);
+            if (previous != null) {
+                unlinkNeighbours(previous);
+                AIRPORTS_INDEX.remove(previous);
+            }
+            AIRPORTS_INDEX.add(airport);
+            linkNeighbours(airport);
+        }
+        lock.writeLock().unlock();
+    }
 
+    @Override
+    public boolean delete(String iataCode) {
         lock.writeLock().lock();
-        result = AIRPORTS_CACHE.removeIf(airport -> airport.getIata().equalsIgnoreCase(iataCode));
+        Airport removed = AIRPORTS_CACHE.remove(AirportHelper.toIataKey(iataCode));
+        if (removed != null) {
+            unlinkNeighbours(removed);
+            AIRPORTS_INDEX.remove(removed);
+        }
         lock.writeLock().unlock();
 
-        return result;
+        return removed != null;
     }
 
     @Override
     public void clear() {
         lock.writeLock().lock();
         AIRPORTS_CACHE.clear();
-        lock.writeLock().lock();
+        AIRPORTS_INDEX.clear();
+        NEIGHBOURS.values().forEach(Map::clear);
+        lock.writeLock().unlock();
+    }
+
+    /**
+     * Build the neighbour lists of an airport just added to the index, and add it to the lists of the airports in
+     * range. Only the airports around it are looked at.
+     */
+    private void linkNeighbours(Airport airport) {
+        for (Map.Entry<Double, Map<String, List<Airport>>> hotNeighbours : NEIGHBOURS.entrySet()) {
+            double radius = hotNeighbours.getKey();
+            Map<String, List<Airport>> neighbours = hotNeighbours.getValue();
+            List<Airport> inRange = new ArrayList<>();
+
+            AIRPORTS_INDEX.forEachWithinRadius(airport.getLatitude(), airport.getLongitude(), radius + NEIGHBOUR_MARGIN,
+                    (neighbour, distance) -> {
+                        if (distance <= radius) {
+                            inRange.add(neighbour);
+                        }
+                        if (neighbour != airport && isInRange(neighbour, airport, radius)) {
+                            List<Airport> neighbourList = neighbours.get(AirportHelper.toIataKey(neighbour.getIata()));
+                            if (neighbourList != null) {
+                                neighbourList.add(airport);
+                            }
+                        }
+                    });
+            neighbours.put(AirportHelper.toIataKey(airport.getIata()), inRange);
+        }
+    }
+
+    /**
+     * Drop the neighbour lists of an airport about to be removed from the index, and remove it from the lists of
+     * the airports in range.
+     */
+    private void unlinkNeighbours(Airport airport) {
+        for (Map.Entry<Double, Map<String, List<Airport>>> hotNeighbours : NEIGHBOURS.entrySet()) {
+            double radius = hotNeighbours.getKey();
+            Map<String, List<Airport>> neighbours = hotNeighbours.getValue();
+
+            neighbours.remove(AirportHelper.toIataKey(airport.getIata()));
+            AIRPORTS_INDEX.forEachWithinRadius(airport.getLatitude(), airport.getLongitude(), radius + NEIGHBOUR_MARGIN,
+                    (neighbour, distance) -> {
+                        List<Airport> neighbourList = neighbours.get(AirportHelper.toIataKey(neighbour.getIata()));
+                        if (neighbourList != null) {
+                            neighbourList.removeIf(inRange -> inRange == airport);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * @return whether the airport is within the radius as seen from the center, as computed by a radius query
+     */
+    private static boolean isInRange(Airport center, Airport airport, double radius) {
+        return AirportHelper.calculateDistance(center.getLatitude(), center.getLongitude(),
+                airport.getLatitude(), airport.getLongitude()) <= radius;
     }
 }
@@ -2,8 +2,12 @@ package com.crossover.trial.weather.repository;
 
 import com.crossover.trial.weather.entity.Airport;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 
 public interface AirportRepository {
     /**
@@ -25,6 +29,60 @@ public interface AirportRepository {
      */
     Set<String> getAllAirportCodes();
 
+    /**
+     * Find the airports whose great-circle distance from the given point is within the radius
+     *
+     * @param latitude  latitude of the centre in degrees
+     * @param longitude longitude of the centre in degrees
+     * @param radius    the radius in KM
+     * @return the airports inside the radius, including any airport located at the centre
+     */
+    List<Airport> findWithinRadius(double latitude, double longitude, double radius);
+
+    /**
+     * Find the airports within the radius of a known airport, the airport itself included. The radiuses of
+     * {@link com.crossover.trial.weather.configuration.AppConfig#HOT_RADII} are served from precomputed lists, without
+     * distance computation, others like {@link #findWithinRadius}.
+     *
+     * @param iataCode the IATA code of the airport at the centre
+     * @param radius   the radius in KM
+     * @return the airports inside the radius, not to be modified, empty if the airport is unknown
+     */
+    List<Airport> findNeighbours(String iataCode, double radius);
+
+    /**
+     * Visit the airports within the radius of a known airport like {@link #findNeighbours}, without collecting them
+     * when the radius is not precomputed. Like {@link #forEachWithinRadius}, the visitor may be called while the
+     * repository is locked.
+     *
+     * @param iataCode the IATA code of the airport at the centre
+     * @param radius   the radius in KM
+     * @param visitor  called with each airport inside the radius
+     */
+    void forEachNeighbour(String iataCode, double radius, Consumer<Airport> visitor);
+
+    /**
+     * Visit the airports whose great-circle distance from the given point is within the radius, without collecting
+     * them. The visitor may be called while the repository is locked, it should be short and must not update the
+     * airports.
+     *
+     * @param latitude  latitude of the centre in degrees
+     * @param longitude longitude of the centre in degrees
+     * @param radius    the radius in KM
+     * @param visitor   called with each airport inside the radius and its distance from the centre in KM
+     */
+    void forEachWithinRadius(double latitude, double longitude, double radius, BiConsumer<Airport, Double> visitor);
+
+    /**
+     * Visit the airports nearest first from the given point, until the visitor asks to stop. Like
+     * {@link #forEachWithinRadius}, the visitor may be called while the repository is locked.
+     *
+     * @param latitude  latitude of the point in degrees
+     * @param longitude longitude of the point in degrees
+     * @param visitor   called with each airport and its distance from the point in KM, returns false to stop
+     */
+    void forEachNearest(double latitude, double longitude, BiPredicate<Airport, Double> visitor);
+
     /**
      * Add a new known airport to our list.
      *
@@ -35,6 +93,13 @@ public interface AirportRepository {
      */
     Airport addAirport(String iataCode, double latitude, double longitude);
 
+    /**
+     * Add known airports at once, replacing the airports with the same IATA code
+     *
+     * @param airports the airports to add
+     */
+    void addAirports(Collection<Airport> airports);
+
     boolean delete(String iataCode);
 
     void clear();
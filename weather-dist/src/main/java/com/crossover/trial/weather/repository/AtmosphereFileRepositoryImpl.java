@@ -0,0 +1,143 @@
+package com.crossover.trial.weather.repository;
+
+import com.crossover.trial.weather.common.AirportHelper;
+import com.crossover.trial.weather.common.JSONHelper;
+import com.crossover.trial.weather.entity.AtmosphericInformation;
+import com.crossover.trial.weather.repository.journal.Journal;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+import static com.crossover.trial.weather.configuration.AppConfig.FILE_REPOSITORY_COMPACTION_THRESHOLD;
+import static com.crossover.trial.weather.configuration.AppConfig.FILE_REPOSITORY_DIRECTORY;
+
+/**
+ * Atmospheric information kept in memory like {@link AtmosphereInMemoryRepositoryImpl} and recorded in a
+ * {@link Journal}, from which it is recovered on restart. Each change journals the whole new snapshot of the
+ * airport, with the update times and version left out of the json served, and returns once it is on disk. Concurrent changes share the same disk write, a change leaving the snapshot as it was is not journaled.
+ */
+public class AtmosphereFileRepositoryImpl implements AtmosphereRepository {
+    private static AtmosphereRepository instance;
+
+    private final AtmosphereInMemoryRepositoryImpl weather = new AtmosphereInMemoryRepositoryImpl();
+
+    private final Journal<AtmosphericInformation> journal;
+
+    /**
+     * held for reading by the updates and for writing by a clear, so the journal and the memory see a clear at the
+     * same point of the updates
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    AtmosphereFileRepositoryImpl(File directory, int compactionThreshold) {
+        journal = new Journal<>(directory, "weather", new AtmosphereCodec(), compactionThreshold,
+                new Journal.Listener<AtmosphericInformation>() {
+                    @Override
+                    public void put(String key, AtmosphericInformation information) {
+                        weather.save(key, information);
+                    }
+
+                    @Override
+                    public void delete(String key) {
+                        weather.delete(key);
+                    }
+
+                    @Override
+                    public void clear() {
+                        weather.clear();
+                    }
+                });
+    }
+
+    public static synchronized AtmosphereRepository getInstance() {
+        if (instance == null) {
+            instance = new AtmosphereFileRepositoryImpl(new File(FILE_REPOSITORY_DIRECTORY), FILE_REPOSITORY_COMPACTION_THRESHOLD);
+        }
+
+        return instance;
+    }
+
+    @Override
+    public AtmosphericInformation find(String iataCode) {
+        return weather.find(iataCode);
+    }
+
+    @Override
+    public List<AtmosphericInformation> findAll() {
+        return weather.findAll();
+    }
+
+    @Override
+    public int countRecentlyUpdated() {
+        return weather.countRecentlyUpdated();
+    }
+
+    @Override
+    public void save(String iataCode, AtmosphericInformation information) {
+        update(iataCode, current -> information);
+    }
+
+    @Override
+    public AtmosphericInformation update(String iataCode, UnaryOperator<AtmosphericInformation> updater) {
+        String key = AirportHelper.toIataKey(iataCode);
+        long[] sequence = new long[1];
+        AtmosphericInformation updated;
+
+        lock.readLock().lock();
+        try {
+            // journaled while the airport is locked, so the journal keeps the order of the changes of each airport
+            updated = weather.update(key, current -> {
+                AtmosphericInformation next = updater.apply(current);
+                if (next != current) {
+                    sequence[0] = next == null ? journal.delete(key) : journal.put(key, next);
+                }
+                return next;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (sequence[0] > 0) {
+            journal.awaitDurable(sequence[0]);
+        }
+
+        return updated;
+    }
+
+    @Override
+    public void clear() {
+        long sequence;
+
+        lock.writeLock().lock();
+        try {
+            weather.clear();
+            sequence = journal.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public void delete(String iataCode) {
+        update(iataCode, current -> null);
+    }
+
+    /**
+     * Journal bytes of atmospheric information: the json of all its fields
+     */
+    private static class AtmosphereCodec implements Journal.Codec<AtmosphericInformation> {
+        @Override
+        public byte[] encode(AtmosphericInformation information) {
+            return JSONHelper.toJson(information).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public AtmosphericInformation decode(String key, byte[] bytes) {
+            return JSONHelper.fromJson(new String(bytes, StandardCharsets.UTF_8), AtmosphericInformation.class);
+        }
+    }
+}
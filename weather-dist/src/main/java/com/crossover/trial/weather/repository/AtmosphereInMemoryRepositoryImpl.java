@@ -1,24 +1,40 @@
 package com.crossover.trial.weather.repository;
 
+import com.crossover.trial.weather.common.AirportHelper;
 import com.crossover.trial.weather.entity.AtmosphericInformation;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
+/**
+ * Atmospheric information snapshots held in a {@link ConcurrentHashMap}: reads never lock, and a write swaps the
+ * snapshot of one airport, only serialising with writes to the same airport.
+ */
 public class AtmosphereInMemoryRepositoryImpl implements AtmosphereRepository {
+    private static final long RECENT_UPDATE_WINDOW = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * one bucket per minute of the recent update window
+     */
+    private static final int RECENT_UPDATE_BUCKETS = 24 * 60;
+
     private static AtmosphereInMemoryRepositoryImpl instance;
 
-    private ReadWriteLock lock = new ReentrantReadWriteLock();
     /**
-     * atmospheric information for each airport, key by airport IATA code:
+     * atmospheric information for each airport, key by canonical airport IATA code
      */
-    private final Map<String, AtmosphericInformation> WEATHER_BY_AIRPORT = new HashMap<>();
+    private final ConcurrentMap<String, AtmosphericInformation> WEATHER_BY_AIRPORT = new ConcurrentHashMap<>();
+
+    private final RecentUpdateCounter RECENT_UPDATES = new RecentUpdateCounter(RECENT_UPDATE_WINDOW, RECENT_UPDATE_BUCKETS);
 
-    private AtmosphereInMemoryRepositoryImpl() {
+    /**
+     * package visible for the file repository, which keeps its state in a private instance
+     */
+    AtmosphereInMemoryRepositoryImpl() {
     }
 
     public static synchronized AtmosphereInMemoryRepositoryImpl getInstance() {
@@ -31,39 +47,62 @@ public class AtmosphereInMemoryRepositoryImpl implements AtmosphereRepository {
 
     @Override
     public AtmosphericInformation find(String iataCode) {
-        lock.readLock().lock();
-        AtmosphericInformation atmosphere = WEATHER_BY_AIRPORT.get(iataCode);
-        lock.readLock().unlock();
-
-        return atmosphere;
+        return WEATHER_BY_AIRPORT.get(AirportHelper.toIataKey(iataCode));
     }
 
     @Override
     public List<AtmosphericInformation> findAll() {
-        lock.readLock().lock();
-        List<AtmosphericInformation> result = new ArrayList<>(WEATHER_BY_AIRPORT.values());
-        lock.readLock().unlock();
-        return result;
+        return new ArrayList<>(WEATHER_BY_AIRPORT.values());
+    }
+
+    @Override
+    public int countRecentlyUpdated() {
+        return RECENT_UPDATES.count(System.currentTimeMillis());
     }
 
     @Override
     public void save(String iataCode, AtmosphericInformation information) {
-        lock.writeLock().lock();
-        WEATHER_BY_AIRPORT.put(iataCode, information);
-        lock.writeLock().unlock();
+        update(iataCode, current -> information);
+    }
+
+    @Override
+    public AtmosphericInformation update(String iataCode, UnaryOperator<AtmosphericInformation> updater) {
+        // counted while the airport is locked, each snapshot being uncounted by the update replacing it, so the
+        // counts follow the map through concurrent deletes
+        return WEATHER_BY_AIRPORT.compute(AirportHelper.toIataKey(iataCode), (key, current) -> {
+            AtmosphericInformation updated = updater.apply(current);
+            if (updated != current) {
+                uncountUpdate(current);
+                countUpdate(updated);
+            }
+            return updated;
+        });
     }
 
     @Override
     public void clear() {
-        lock.writeLock().lock();
-        WEATHER_BY_AIRPORT.clear();
-        lock.writeLock().unlock();
+        // each airport is removed and uncounted under its lock, an update racing the clear counting its snapshot
+        // only if the snapshot stays in the map
+        WEATHER_BY_AIRPORT.forEach((key, information) -> delete(key));
     }
 
     @Override
     public void delete(String iataCode) {
-        lock.writeLock().lock();
-        WEATHER_BY_AIRPORT.remove(iataCode);
-        lock.writeLock().unlock();
+        WEATHER_BY_AIRPORT.computeIfPresent(AirportHelper.toIataKey(iataCode), (key, current) -> {
+            uncountUpdate(current);
+            return null;
+        });
+    }
+
+    private void countUpdate(AtmosphericInformation information) {
+        if (information != null && information.getLastUpdateTime() > 0) {
+            RECENT_UPDATES.add(information.getLastUpdateTime());
+        }
+    }
+
+    private void uncountUpdate(AtmosphericInformation information) {
+        if (information != null && information.getLastUpdateTime() > 0) {
+            RECENT_UPDATES.remove(information.getLastUpdateTime());
+        }
     }
 }
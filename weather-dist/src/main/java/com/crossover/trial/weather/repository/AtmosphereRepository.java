@@ -3,6 +3,7 @@ package com.crossover.trial.weather.repository;
 import com.crossover.trial.weather.entity.AtmosphericInformation;
 
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 public interface AtmosphereRepository {
 
@@ -10,8 +11,26 @@ public interface AtmosphereRepository {
 
     List<AtmosphericInformation> findAll();
 
+    /**
+     * Count the airports whose atmospheric information was updated within the last 24 hours
+     *
+     * @return number of recently updated airports
+     */
+    int countRecentlyUpdated();
+
     void save(String iataCode, AtmosphericInformation information);
 
+    /**
+     * Atomically replace the atmospheric information of an airport. Updates of the same airport are applied one
+     * after the other, updates of different airports proceed in parallel. The updater must not change the
+     * information it receives, which readers may be holding, but return a new one.
+     *
+     * @param iataCode the airport IATA code
+     * @param updater  computes the new information from the current one, which is null if the airport has none
+     * @return the new atmospheric information
+     */
+    AtmosphericInformation update(String iataCode, UnaryOperator<AtmosphericInformation> updater);
+
     void clear();
 
     void delete(String iataCode);
@@ -1,11 +1,14 @@
 package com.crossover.trial.weather.repository;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import com.crossover.trial.weather.common.AirportHelper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.crossover.trial.weather.configuration.AppConfig.RADIUS_HISTOGRAM_BUCKETS;
+import static com.crossover.trial.weather.configuration.AppConfig.RADIUS_HISTOGRAM_BUCKET_WIDTH;
+import static com.crossover.trial.weather.configuration.AppConfig.RADIUS_HISTOGRAM_SCALE;
 
 public class FrequencyInMemoryRepository implements FrequencyRepository {
     private static FrequencyRepository instance;
@@ -14,12 +17,22 @@ public class FrequencyInMemoryRepository implements FrequencyRepository {
      * for now provides the basis for future performance optimizations. Due to the stateless deployment architecture
      * we don't want to write this to disk, but will pull it off using a REST request and aggregate with other
      * performance metrics {@link #ping()}
+     * <p>
+     * Counters are striped {@link LongAdder}s so that concurrent queries record their statistics without contending
+     * on a shared lock, key by canonical IATA code.
      */
-    private Map<String, Integer> requestFrequency = new HashMap<>();
+    private final ConcurrentMap<String, LongAdder> requestFrequency = new ConcurrentHashMap<>();
 
-    private Map<Double, Integer> radiusFrequency = new HashMap<>();
+    /**
+     * bounded histogram of requested radiuses, whatever radiuses clients send
+     */
+    private final RadiusHistogram radiusFrequency =
+            new RadiusHistogram(RADIUS_HISTOGRAM_SCALE, RADIUS_HISTOGRAM_BUCKETS, RADIUS_HISTOGRAM_BUCKET_WIDTH);
 
-    private ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * sum of {@link #requestFrequency}, maintained on each update
+     */
+    private final LongAdder totalRequest = new LongAdder();
 
     private FrequencyInMemoryRepository() {
     }
@@ -34,50 +47,31 @@ public class FrequencyInMemoryRepository implements FrequencyRepository {
 
     @Override
     public void update(String iata, Double radius) {
-        lock.writeLock().lock();
-        requestFrequency.put(iata, requestFrequency.getOrDefault(iata, 0) + 1);
-        radiusFrequency.put(radius, radiusFrequency.getOrDefault(radius, 0) + 1);
-        lock.writeLock().unlock();
+        requestFrequency.computeIfAbsent(AirportHelper.toIataKey(iata), key -> new LongAdder()).increment();
+        radiusFrequency.record(radius);
+        totalRequest.increment();
     }
 
     @Override
     public void clear() {
-        lock.writeLock().lock();
         requestFrequency.clear();
         radiusFrequency.clear();
-        lock.writeLock().unlock();
+        totalRequest.reset();
     }
 
     @Override
     public long getTotalRequest() {
-        lock.readLock().lock();
-        long result = requestFrequency.values().stream()
-                .mapToLong(Integer::intValue).sum();
-        lock.readLock().unlock();
-        return result;
+        return totalRequest.sum();
     }
 
     @Override
     public int getRequestFrequency(String iataCode, int defaultValue) {
-        lock.readLock().lock();
-        int result = requestFrequency.getOrDefault(iataCode, defaultValue);
-        lock.readLock().unlock();
-        return result;
-    }
-
-    @Override
-    public Set<Double> getAllRadiuses() {
-        lock.readLock().lock();
-        Set<Double> result = new HashSet<>(radiusFrequency.keySet());
-        lock.readLock().unlock();
-        return result;
+        LongAdder counter = requestFrequency.get(AirportHelper.toIataKey(iataCode));
+        return counter == null ? defaultValue : counter.intValue();
     }
 
     @Override
-    public int getRadiusFrequency(Double radius) {
-        lock.readLock().lock();
-        int result = radiusFrequency.get(radius);
-        lock.readLock().unlock();
-        return result;
+    public int[] getRadiusHistogram() {
+        return radiusFrequency.toArray();
     }
 }
@@ -1,7 +1,5 @@
 package com.crossover.trial.weather.repository;
 
-import java.util.Set;
-
 public interface FrequencyRepository {
     void update(String iata, Double radius);
 
@@ -11,7 +9,10 @@ public interface FrequencyRepository {
 
     int getRequestFrequency(String iataCode, int defaultValue);
 
-    Set<Double> getAllRadiuses();
-
-    int getRadiusFrequency(Double radius);
+    /**
+     * Get the number of requests per radius bucket, see {@link RadiusHistogram#toArray()}
+     *
+     * @return request count of each radius bucket
+     */
+    int[] getRadiusHistogram();
 }
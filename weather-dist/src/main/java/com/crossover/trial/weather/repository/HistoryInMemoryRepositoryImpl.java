@@ -0,0 +1,86 @@
+package com.crossover.trial.weather.repository;
+
+import com.crossover.trial.weather.common.AirportHelper;
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.common.HistoryResolution;
+import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointSample;
+import com.crossover.trial.weather.repository.history.DataPointHistory;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.crossover.trial.weather.configuration.AppConfig.HISTORY_CAPACITY;
+import static com.crossover.trial.weather.configuration.AppConfig.HISTORY_HOUR_BUCKETS;
+import static com.crossover.trial.weather.configuration.AppConfig.HISTORY_MINUTE_BUCKETS;
+import static com.crossover.trial.weather.configuration.AppConfig.HISTORY_QUARTER_HOUR_BUCKETS;
+
+/**
+ * Data point history held in a {@link DataPointHistory} per airport and point type, allocated on the first data point
+ * of the type so that memory only grows with the collected types, up to the sizes configured in
+ * {@link com.crossover.trial.weather.configuration.AppConfig}.
+ */
+public class HistoryInMemoryRepositoryImpl implements HistoryRepository {
+    private static final int POINT_TYPES = DataPointType.values().length;
+
+    private static HistoryRepository instance;
+
+    private final Map<HistoryResolution, Integer> BUCKET_COUNTS = new EnumMap<>(HistoryResolution.class);
+
+    /**
+     * history of each airport, key by canonical IATA code, indexed by point type ordinal
+     */
+    private final ConcurrentMap<String, AtomicReferenceArray<DataPointHistory>> HISTORY_BY_AIRPORT =
+            new ConcurrentHashMap<>();
+
+    private HistoryInMemoryRepositoryImpl() {
+        BUCKET_COUNTS.put(HistoryResolution.MINUTE, HISTORY_MINUTE_BUCKETS);
+        BUCKET_COUNTS.put(HistoryResolution.QUARTER_HOUR, HISTORY_QUARTER_HOUR_BUCKETS);
+        BUCKET_COUNTS.put(HistoryResolution.HOUR, HISTORY_HOUR_BUCKETS);
+    }
+
+    public static synchronized HistoryRepository getInstance() {
+        if (instance == null) {
+            instance = new HistoryInMemoryRepositoryImpl();
+        }
+
+        return instance;
+    }
+
+    @Override
+    public void record(String iataCode, DataPointType pointType, long time, DataPoint dataPoint) {
+        AtomicReferenceArray<DataPointHistory> histories = HISTORY_BY_AIRPORT.computeIfAbsent(
+                AirportHelper.toIataKey(iataCode), key -> new AtomicReferenceArray<>(POINT_TYPES));
+
+        DataPointHistory history = histories.get(pointType.ordinal());
+        if (history == null) {
+            histories.compareAndSet(pointType.ordinal(), null, new DataPointHistory(HISTORY_CAPACITY, BUCKET_COUNTS));
+            history = histories.get(pointType.ordinal());
+        }
+        history.add(time, dataPoint);
+    }
+
+    @Override
+    public List<DataPointSample> find(String iataCode, DataPointType pointType, HistoryResolution resolution,
+                                      long from, long to) {
+        AtomicReferenceArray<DataPointHistory> histories = HISTORY_BY_AIRPORT.get(AirportHelper.toIataKey(iataCode));
+        DataPointHistory history = histories == null ? null : histories.get(pointType.ordinal());
+
+        return history == null ? Collections.emptyList() : history.find(resolution, from, to);
+    }
+
+    @Override
+    public void delete(String iataCode) {
+        HISTORY_BY_AIRPORT.remove(AirportHelper.toIataKey(iataCode));
+    }
+
+    @Override
+    public void clear() {
+        HISTORY_BY_AIRPORT.clear();
+    }
+}
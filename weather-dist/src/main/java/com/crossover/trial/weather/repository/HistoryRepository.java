@@ -0,0 +1,38 @@
+package com.crossover.trial.weather.repository;
+
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.common.HistoryResolution;
+import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointSample;
+
+import java.util.List;
+
+public interface HistoryRepository {
+    /**
+     * Record a data point collected for an airport, the oldest data point of its type being forgotten once the
+     * history of the type is full
+     *
+     * @param iataCode  the airport IATA code
+     * @param pointType the type of the data point
+     * @param time      the time the data point was collected, in milliseconds since UTC epoch
+     * @param dataPoint the collected data point
+     */
+    void record(String iataCode, DataPointType pointType, long time, DataPoint dataPoint);
+
+    /**
+     * Find the recorded data points of a type collected within a time range
+     *
+     * @param iataCode   the airport IATA code
+     * @param pointType  the type of the data points
+     * @param resolution the raw data points, or the data points merged over the buckets of the resolution
+     * @param from       start of the time range in milliseconds since UTC epoch, inclusive
+     * @param to         end of the time range in milliseconds since UTC epoch, inclusive
+     * @return the data points oldest first, merged data points being timed at the start of their bucket, empty if
+     * none
+     */
+    List<DataPointSample> find(String iataCode, DataPointType pointType, HistoryResolution resolution, long from, long to);
+
+    void delete(String iataCode);
+
+    void clear();
+}
@@ -0,0 +1,97 @@
+package com.crossover.trial.weather.repository;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size histogram of query radiuses. The memory used and the cost of reading it do not depend on the
+ * radiuses recorded: anything beyond the last regular bucket is counted in a single overflow bucket.
+ */
+public class RadiusHistogram {
+
+    public enum Scale {
+        /**
+         * bucket i holds radiuses in [i * width, (i + 1) * width)
+         */
+        LINEAR,
+
+        /**
+         * bucket 0 holds radiuses in [0, width), bucket i holds [width * 2^(i - 1), width * 2^i)
+         */
+        LOGARITHMIC
+    }
+
+    private final Scale scale;
+
+    private final double bucketWidth;
+
+    /**
+     * regular buckets followed by the overflow bucket
+     */
+    private final LongAdder[] buckets;
+
+    /**
+     * @param scale       how radiuses are mapped to buckets
+     * @param bucketCount number of regular buckets, the overflow bucket comes in addition
+     * @param bucketWidth width in KM of the first bucket, and of every bucket on a linear scale
+     */
+    public RadiusHistogram(Scale scale, int bucketCount, double bucketWidth) {
+        this.scale = scale;
+        this.bucketWidth = bucketWidth;
+        this.buckets = new LongAdder[bucketCount + 1];
+
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(double radius) {
+        buckets[bucketOf(radius)].increment();
+    }
+
+    public void clear() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+    }
+
+    /**
+     * @return the count of each bucket up to the last non-empty one, the overflow bucket being the last index
+     * when it is used. Never empty.
+     */
+    public int[] toArray() {
+        int last = 0;
+        int[] counts = new int[buckets.length];
+
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].intValue();
+            if (counts[i] != 0) {
+                last = i;
+            }
+        }
+
+        int[] result = new int[last + 1];
+        System.arraycopy(counts, 0, result, 0, result.length);
+        return result;
+    }
+
+    private int bucketOf(double radius) {
+        int overflow = buckets.length - 1;
+
+        if (Double.isNaN(radius)) {
+            return overflow;
+        }
+        if (radius < bucketWidth) {
+            return 0;
+        }
+
+        double index = scaledIndex(radius);
+        return index >= overflow ? overflow : (int) index;
+    }
+
+    private double scaledIndex(double radius) {
+        if (scale == Scale.LOGARITHMIC) {
+            return Math.floor(Math.log(radius / bucketWidth) / Math.log(2)) + 1;
+        }
+        return Math.floor(radius / bucketWidth);
+    }
+}
@@ -0,0 +1,104 @@
+package com.crossover.trial.weather.repository;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts update times falling within a sliding window, using a ring of time buckets. Recording, removing and
+ * counting cost does not depend on how many times are recorded, and never locks: each bucket counts with a
+ * {@link LongAdder}.
+ * <p>
+ * The window boundary has the precision of a bucket: times in the bucket straddling the start of the window are
+ * no longer counted, so the count may miss updates which are at most one bucket width younger than the window.
+ */
+public class RecentUpdateCounter {
+    private final long bucketMillis;
+
+    /**
+     * bucket currently held by each slot of the ring, null if none yet
+     */
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    /**
+     * A bucket of the ring, replaced rather than reset when its slot is recycled so concurrent updates never lock
+     */
+    private static class Bucket {
+        /**
+         * absolute bucket number, time / bucketMillis
+         */
+        private final long number;
+
+        private final LongAdder count = new LongAdder();
+
+        private Bucket(long number) {
+            this.number = number;
+        }
+    }
+
+    /**
+     * @param windowMillis length of the sliding window
+     * @param bucketCount  number of buckets the window is divided in
+     */
+    public RecentUpdateCounter(long windowMillis, int bucketCount) {
+        this.bucketMillis = Math.max(1, windowMillis / bucketCount);
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    /**
+     * Count an update made at the given time
+     */
+    public void add(long time) {
+        long bucketNumber = time / bucketMillis;
+        int slot = slotOf(bucketNumber);
+
+        while (true) {
+            Bucket bucket = buckets.get(slot);
+            if (bucket != null && bucket.number > bucketNumber) {
+                // the time is older than the window
+                return;
+            }
+            if (bucket != null && bucket.number == bucketNumber) {
+                bucket.count.increment();
+                return;
+            }
+
+            // the slot holds an expired bucket, recycle it
+            buckets.compareAndSet(slot, bucket, new Bucket(bucketNumber));
+        }
+    }
+
+    /**
+     * Stop counting an update previously added at the given time
+     */
+    public void remove(long time) {
+        long bucketNumber = time / bucketMillis;
+        Bucket bucket = buckets.get(slotOf(bucketNumber));
+
+        if (bucket != null && bucket.number == bucketNumber) {
+            bucket.count.decrement();
+        }
+    }
+
+    /**
+     * @param now the current time
+     * @return number of updates counted within the window ending at the given time
+     */
+    public int count(long now) {
+        long newest = now / bucketMillis;
+        long oldest = newest - buckets.length() + 1;
+
+        long total = 0;
+        for (int slot = 0; slot < buckets.length(); slot++) {
+            Bucket bucket = buckets.get(slot);
+            if (bucket != null && bucket.number >= oldest && bucket.number <= newest) {
+                total += bucket.count.sum();
+            }
+        }
+        // each removal follows the add of the same time, the guard only protects against a misuse
+        return (int) Math.max(0, total);
+    }
+
+    private int slotOf(long bucketNumber) {
+        return (int) Math.floorMod(bucketNumber, (long) buckets.length());
+    }
+}
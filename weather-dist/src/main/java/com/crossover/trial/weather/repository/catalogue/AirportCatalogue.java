@@ -0,0 +1,142 @@
+package com.crossover.trial.weather.repository.catalogue;
+
+import com.crossover.trial.weather.entity.Airport;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Binary airport catalogue, read at boot instead of parsing and uploading the airports.dat CSV file.
+ * <p>
+ * The file holds a header (magic number, format version, number of airports) followed by fixed width records sorted
+ * by IATA code: the code packed in an int, one ASCII character per byte, then the latitude and longitude doubles.
+ * Reading maps the file in memory and decodes the records in one pass.
+ */
+public class AirportCatalogue {
+    /**
+     * "AWSC", airport weather service catalogue
+     */
+    private static final int MAGIC = 0x41575343;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 12;
+
+    private static final int RECORD_SIZE = 20;
+
+    private static final int IATA_LENGTH = 3;
+
+    private AirportCatalogue() {
+    }
+
+    /**
+     * Write a catalogue of the given airports, skipping those without a 3 letter ASCII IATA code or valid
+     * coordinates
+     *
+     * @param airports the airports of the catalogue
+     * @param file     the catalogue file, replaced if it exists
+     * @return the number of airports written
+     */
+    public static int write(Collection<Airport> airports, File file) throws IOException {
+        List<Airport> records = airports.stream()
+                .filter(AirportCatalogue::isWritable)
+                .sorted(Comparator.comparingInt(airport -> packIata(airport.getIata())))
+                .collect(Collectors.toList());
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + records.size() * RECORD_SIZE);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(records.size());
+        for (Airport airport : records) {
+            buffer.putInt(packIata(airport.getIata()))
+                    .putDouble(airport.getLatitude())
+                    .putDouble(airport.getLongitude());
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return records.size();
+    }
+
+    /**
+     * @param file a catalogue written by {@link #write(Collection, File)}
+     * @return the airports of the catalogue, sorted by IATA code
+     * @throws IOException if the file cannot be read or is not a valid catalogue
+     */
+    public static List<Airport> read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not an airport catalogue");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not an airport catalogue");
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException(file + " has the unsupported catalogue version " + version);
+            }
+            int count = buffer.getInt();
+            if (count < 0 || buffer.remaining() != (long) count * RECORD_SIZE) {
+                throw new IOException(file + " is truncated, expecting " + count + " airports");
+            }
+
+            List<Airport> airports = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Airport airport = new Airport();
+                airport.setIata(unpackIata(buffer.getInt()));
+                airport.setLatitude(buffer.getDouble());
+                airport.setLongitude(buffer.getDouble());
+                airports.add(airport);
+            }
+            return airports;
+        }
+    }
+
+    private static boolean isWritable(Airport airport) {
+        if (Math.abs(airport.getLatitude()) > 90 || Math.abs(airport.getLongitude()) > 180) {
+            return false;
+        }
+
+        String iata = airport.getIata();
+        if (iata == null || iata.length() != IATA_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < IATA_LENGTH; i++) {
+            if (iata.charAt(i) == 0 || iata.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int packIata(String iata) {
+        int packed = 0;
+        for (int i = 0; i < IATA_LENGTH; i++) {
+            packed = packed << 8 | iata.charAt(i);
+        }
+        return packed;
+    }
+
+    private static String unpackIata(int packed) {
+        char[] iata = new char[IATA_LENGTH];
+        for (int i = IATA_LENGTH - 1; i >= 0; i--) {
+            iata[i] = (char) (packed & 0xFF);
+            packed >>>= 8;
+        }
+        return new String(iata);
+    }
+}
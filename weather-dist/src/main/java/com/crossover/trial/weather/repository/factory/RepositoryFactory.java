@@ -3,6 +3,7 @@ package com.crossover.trial.weather.repository.factory;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.repository.*;
 
+import static com.crossover.trial.weather.repository.factory.RepositoryType.FILE;
 import static com.crossover.trial.weather.repository.factory.RepositoryType.IN_MEMORY;
 
 public class RepositoryFactory {
@@ -10,6 +11,8 @@ public class RepositoryFactory {
 
         if (IN_MEMORY.equals(type)) {
             return AirportInMemoryRepositoryImpl.getInstance();
+        } else if (FILE.equals(type)) {
+            return AirportFileRepositoryImpl.getInstance();
         } else {
             throw new WeatherException("repository type is not supported");
         }
@@ -20,6 +23,8 @@ public class RepositoryFactory {
 
         if (IN_MEMORY.equals(type)) {
             return AtmosphereInMemoryRepositoryImpl.getInstance();
+        } else if (FILE.equals(type)) {
+            return AtmosphereFileRepositoryImpl.getInstance();
         } else {
             throw new WeatherException("repository type is not supported");
         }
@@ -28,11 +33,23 @@ public class RepositoryFactory {
 
     public static FrequencyRepository getFrequencyRepository(RepositoryType type) throws WeatherException {
 
-        if (IN_MEMORY.equals(type)) {
+        // request statistics are pulled by the monitoring, they are not worth being stored on disk
+        if (IN_MEMORY.equals(type) || FILE.equals(type)) {
             return FrequencyInMemoryRepository.getInstance();
         } else {
             throw new WeatherException("repository type is not supported");
         }
 
     }
+
+    public static HistoryRepository getHistoryRepository(RepositoryType type) throws WeatherException {
+
+        // the history is bounded to recent data points, rebuilt by the sensors after a restart
+        if (IN_MEMORY.equals(type) || FILE.equals(type)) {
+            return HistoryInMemoryRepositoryImpl.getInstance();
+        } else {
+            throw new WeatherException("repository type is not supported");
+        }
+
+    }
 }
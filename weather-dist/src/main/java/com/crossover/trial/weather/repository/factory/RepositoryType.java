@@ -2,6 +2,6 @@ package com.crossover.trial.weather.repository.factory;
 
 public enum RepositoryType {
     IN_MEMORY,
-    FILE, // for extensible future use
+    FILE,
     DATABASE // for extensible future use
 }
@@ -0,0 +1,51 @@
+package com.crossover.trial.weather.repository.history;
+
+import com.crossover.trial.weather.common.HistoryResolution;
+import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointSample;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * History of the data points of one type collected for one airport, at every {@link HistoryResolution}: the raw
+ * data points in a {@link DataPointRing} and a {@link DataPointRollup} per bucketed resolution, all updated as data
+ * points are added.
+ */
+public class DataPointHistory {
+    private final DataPointRing raw;
+
+    /**
+     * rollup of each bucketed resolution, indexed by resolution ordinal
+     */
+    private final DataPointRollup[] rollups = new DataPointRollup[HistoryResolution.values().length];
+
+    /**
+     * @param rawCapacity  number of raw data points kept
+     * @param bucketCounts number of buckets kept for each bucketed resolution
+     */
+    public DataPointHistory(int rawCapacity, Map<HistoryResolution, Integer> bucketCounts) {
+        raw = new DataPointRing(rawCapacity);
+        bucketCounts.forEach((resolution, bucketCount) ->
+                rollups[resolution.ordinal()] = new DataPointRollup(resolution.getBucketMillis(), bucketCount));
+    }
+
+    public void add(long time, DataPoint dataPoint) {
+        raw.add(time, dataPoint);
+        for (DataPointRollup rollup : rollups) {
+            if (rollup != null) {
+                rollup.add(time, dataPoint);
+            }
+        }
+    }
+
+    /**
+     * @return the data points at the given resolution within the time range, both ends inclusive, oldest first
+     */
+    public List<DataPointSample> find(HistoryResolution resolution, long from, long to) {
+        if (resolution == HistoryResolution.RAW) {
+            return raw.find(from, to);
+        }
+        return rollups[resolution.ordinal()].find(from, to);
+    }
+}
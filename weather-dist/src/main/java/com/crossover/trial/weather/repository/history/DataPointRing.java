@@ -0,0 +1,81 @@
+package com.crossover.trial.weather.repository.history;
+
+import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointSample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded history of the data points of one type collected for one airport. Samples are kept in parallel primitive
+ * arrays used as a ring, allocated once: when full, a new sample overwrites the oldest one. A sample costs 32 bytes
+ * whatever the number of samples recorded.
+ */
+public class DataPointRing {
+    private final long[] times;
+
+    private final double[] means;
+
+    private final int[] firsts;
+
+    private final int[] seconds;
+
+    private final int[] thirds;
+
+    private final int[] counts;
+
+    /**
+     * slot of the next sample
+     */
+    private int next;
+
+    private int size;
+
+    /**
+     * @param capacity number of samples kept
+     */
+    public DataPointRing(int capacity) {
+        times = new long[capacity];
+        means = new double[capacity];
+        firsts = new int[capacity];
+        seconds = new int[capacity];
+        thirds = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    public synchronized void add(long time, DataPoint dataPoint) {
+        times[next] = time;
+        means[next] = dataPoint.getMean();
+        firsts[next] = dataPoint.getFirst();
+        seconds[next] = dataPoint.getSecond();
+        thirds[next] = dataPoint.getThird();
+        counts[next] = dataPoint.getCount();
+
+        next = (next + 1) % times.length;
+        size = Math.min(size + 1, times.length);
+    }
+
+    /**
+     * @param from start of the time range, inclusive
+     * @param to   end of the time range, inclusive
+     * @return the kept samples collected within the range, in the order they were added
+     */
+    public synchronized List<DataPointSample> find(long from, long to) {
+        List<DataPointSample> samples = new ArrayList<>();
+
+        int slot = (next - size + times.length) % times.length;
+        for (int i = 0; i < size; i++) {
+            if (times[slot] >= from && times[slot] <= to) {
+                samples.add(new DataPointSample(times[slot], new DataPoint.Builder()
+                        .withMean(means[slot])
+                        .withFirst(firsts[slot])
+                        .withMedian(seconds[slot])
+                        .withLast(thirds[slot])
+                        .withCount(counts[slot])
+                        .build()));
+            }
+            slot = (slot + 1) % times.length;
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,140 @@
+package com.crossover.trial.weather.repository.history;
+
+import com.crossover.trial.weather.common.DataPointAccumulator;
+import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointSample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.crossover.trial.weather.common.DataPointAccumulator.SUM_COUNT;
+
+/**
+ * Data points of one type collected for one airport, merged over fixed time buckets as they are added by the
+ * {@link DataPointAccumulator} merge. The most recent buckets are kept in primitive arrays used as a ring: a data
+ * point starting a new bucket recycles the oldest one, and data points older than the oldest bucket are ignored.
+ * <p>
+ * The ring is allocated on the first data point and grows with the time span collected, up to the number of buckets
+ * kept, so an airport collected for an hour only holds a couple of hour buckets. A bucket costs 56 bytes.
+ */
+public class DataPointRollup {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final long bucketMillis;
+
+    private final int bucketCount;
+
+    /**
+     * absolute bucket number (time / bucketMillis) held by each slot of the ring
+     */
+    private long[] bucketNumbers;
+
+    /**
+     * weighted sums of the data points merged in each slot, {@link DataPointAccumulator#SUM_COUNT} per slot
+     */
+    private double[] sums;
+
+    private long[] counts;
+
+    /**
+     * lowest and highest bucket numbers ever added
+     */
+    private long earliestBucketNumber = Long.MAX_VALUE;
+
+    private long latestBucketNumber = Long.MIN_VALUE;
+
+    /**
+     * @param bucketMillis time span merged in a bucket
+     * @param bucketCount  number of buckets kept
+     */
+    public DataPointRollup(long bucketMillis, int bucketCount) {
+        this.bucketMillis = bucketMillis;
+        this.bucketCount = bucketCount;
+    }
+
+    public synchronized void add(long time, DataPoint dataPoint) {
+        long bucketNumber = Math.floorDiv(time, bucketMillis);
+        earliestBucketNumber = Math.min(earliestBucketNumber, bucketNumber);
+        latestBucketNumber = Math.max(latestBucketNumber, bucketNumber);
+        ensureCapacity((int) Math.min(bucketCount, latestBucketNumber - earliestBucketNumber + 1));
+
+        int slot = slotOf(bucketNumber);
+        if (bucketNumbers[slot] != bucketNumber) {
+            if (bucketNumbers[slot] > bucketNumber) {
+                // the bucket of the data point was already recycled
+                return;
+            }
+            bucketNumbers[slot] = bucketNumber;
+            Arrays.fill(sums, slot * SUM_COUNT, (slot + 1) * SUM_COUNT, 0);
+            counts[slot] = 0;
+        }
+
+        DataPointAccumulator.addSums(sums, slot * SUM_COUNT, dataPoint, DataPointAccumulator.weightOf(dataPoint));
+        counts[slot] += dataPoint.getCount();
+    }
+
+    /**
+     * @param from start of the time range, inclusive
+     * @param to   end of the time range, inclusive
+     * @return the merged data point of each kept bucket overlapping the range, oldest first, timed at the start of
+     * its bucket
+     */
+    public synchronized List<DataPointSample> find(long from, long to) {
+        List<DataPointSample> samples = new ArrayList<>();
+        if (bucketNumbers == null) {
+            return samples;
+        }
+
+        long first = Math.max(Math.floorDiv(from, bucketMillis), latestBucketNumber - bucketNumbers.length + 1);
+        long last = Math.min(Math.floorDiv(to, bucketMillis), latestBucketNumber);
+        for (long bucketNumber = first; bucketNumber <= last; bucketNumber++) {
+            int slot = slotOf(bucketNumber);
+            if (bucketNumbers[slot] == bucketNumber) {
+                samples.add(new DataPointSample(bucketNumber * bucketMillis,
+                        DataPointAccumulator.toDataPoint(sums, slot * SUM_COUNT, counts[slot])));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Grow the ring to hold at least the given number of buckets, moving the held buckets to their new slots. The
+     * held buckets span no more than the current capacity, so they never collide in the larger ring.
+     */
+    private void ensureCapacity(int capacity) {
+        if (bucketNumbers != null && bucketNumbers.length >= capacity) {
+            return;
+        }
+
+        int length = bucketNumbers == null ? Math.min(bucketCount, INITIAL_CAPACITY) : bucketNumbers.length;
+        while (length < capacity) {
+            length = (int) Math.min(bucketCount, 2L * length);
+        }
+
+        long[] oldBucketNumbers = bucketNumbers;
+        double[] oldSums = sums;
+        long[] oldCounts = counts;
+
+        bucketNumbers = new long[length];
+        sums = new double[length * SUM_COUNT];
+        counts = new long[length];
+        Arrays.fill(bucketNumbers, Long.MIN_VALUE);
+
+        if (oldBucketNumbers == null) {
+            return;
+        }
+        for (int oldSlot = 0; oldSlot < oldBucketNumbers.length; oldSlot++) {
+            if (oldBucketNumbers[oldSlot] != Long.MIN_VALUE) {
+                int slot = slotOf(oldBucketNumbers[oldSlot]);
+                bucketNumbers[slot] = oldBucketNumbers[oldSlot];
+                System.arraycopy(oldSums, oldSlot * SUM_COUNT, sums, slot * SUM_COUNT, SUM_COUNT);
+                counts[slot] = oldCounts[oldSlot];
+            }
+        }
+    }
+
+    private int slotOf(long bucketNumber) {
+        return (int) Math.floorMod(bucketNumber, (long) bucketNumbers.length);
+    }
+}
@@ -0,0 +1,348 @@
+package com.crossover.trial.weather.repository.index;
+
+import com.crossover.trial.weather.common.AirportHelper;
+import com.crossover.trial.weather.entity.Airport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+import static com.crossover.trial.weather.common.AirportHelper.EARTH_RADIUS;
+
+/**
+ * Equal-angle latitude/longitude grid over airports. A radius query only visits the cells overlapping the
+ * bounding box of the search circle and runs the haversine distance on the airports found there. A nearest query
+ * visits rings of cells around the point, and stops as soon as the caller has enough airports.
+ * <p>
+ * The index is not thread safe, the owning repository is expected to guard it with its own lock.
+ */
+public class SpatialGridIndex {
+    /**
+     * Small margin in degrees added to the bounding box to absorb floating point error at its borders
+     */
+    private static final double BOX_MARGIN = 1e-9;
+
+    private final double cellSize;
+
+    private final int latitudeCells;
+
+    private final int longitudeCells;
+
+    /**
+     * cosine of the latitude farthest from the equator of each row, bounding the cosine of the latitudes in the row
+     */
+    private final double[] rowCosines;
+
+    /**
+     * airports in each non-empty cell, key by {@link #cellKey(int, int)}
+     */
+    private final Map<Long, List<Airport>> cells = new HashMap<>();
+
+    /**
+     * @param cellSize the width and height of a cell in degrees
+     */
+    public SpatialGridIndex(double cellSize) {
+        this.cellSize = cellSize;
+        this.latitudeCells = (int) Math.ceil(180 / cellSize);
+        this.longitudeCells = (int) Math.ceil(360 / cellSize);
+
+        this.rowCosines = new double[latitudeCells];
+        for (int row = 0; row < latitudeCells; row++) {
+            double minLatitude = row * cellSize - 90;
+            double maxLatitude = Math.min(90, minLatitude + cellSize);
+            double farthestLatitude = Math.max(Math.abs(minLatitude), Math.abs(maxLatitude));
+            rowCosines[row] = Math.max(0, Math.cos(Math.toRadians(farthestLatitude)));
+        }
+    }
+
+    public void add(Airport airport) {
+        long key = cellKey(latitudeRow(airport.getLatitude()), longitudeColumn(airport.getLongitude()));
+        cells.computeIfAbsent(key, cell -> new ArrayList<>()).add(airport);
+    }
+
+    public void remove(Airport airport) {
+        long key = cellKey(latitudeRow(airport.getLatitude()), longitudeColumn(airport.getLongitude()));
+        List<Airport> cell = cells.get(key);
+
+        if (cell != null) {
+            cell.remove(airport);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+    }
+
+    /**
+     * Visit every airport whose great-circle distance from the given point is within the radius.
+     *
+     * @param latitude  latitude of the centre in degrees
+     * @param longitude longitude of the centre in degrees
+     * @param radius    the radius in KM
+     * @param visitor   receives each matching airport together with its distance from the centre in KM
+     */
+    public void forEachWithinRadius(double latitude, double longitude, double radius,
+                                    BiConsumer<Airport, Double> visitor) {
+        if (radius < 0 || cells.isEmpty()) {
+            return;
+        }
+
+        double angularRadius = radius / EARTH_RADIUS;
+        double deltaLatitude = Math.toDegrees(angularRadius) + BOX_MARGIN;
+
+        double minLatitude = latitude - deltaLatitude;
+        double maxLatitude = latitude + deltaLatitude;
+        int minRow = latitudeRow(minLatitude);
+        int maxRow = latitudeRow(maxLatitude);
+
+        // a circle containing a pole or wider than the hemisphere spans every longitude
+        int firstColumn = 0;
+        int columns = longitudeCells;
+        if (minLatitude > -90 && maxLatitude < 90 && angularRadius < Math.PI / 2) {
+            double ratio = Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude));
+
+            if (ratio < 1) {
+                double deltaLongitude = Math.toDegrees(Math.asin(ratio)) + BOX_MARGIN;
+                int from = (int) Math.floor((longitude - deltaLongitude + 180) / cellSize);
+                int to = (int) Math.floor((longitude + deltaLongitude + 180) / cellSize);
+
+                firstColumn = Math.floorMod(from, longitudeCells);
+                columns = Math.min(to - from + 1, longitudeCells);
+            }
+        }
+
+        long candidateCells = (long) (maxRow - minRow + 1) * columns;
+        if (candidateCells <= cells.size()) {
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int offset = 0; offset < columns; offset++) {
+                    List<Airport> cell = cells.get(cellKey(row, (firstColumn + offset) % longitudeCells));
+                    if (cell != null) {
+                        visitCell(cell, latitude, longitude, radius, visitor);
+                    }
+                }
+            }
+        } else {
+            // the box covers more cells than are populated, walk the populated ones instead
+            for (Map.Entry<Long, List<Airport>> cell : cells.entrySet()) {
+                int row = (int) (cell.getKey() / longitudeCells);
+                int column = (int) (cell.getKey() % longitudeCells);
+
+                if (row >= minRow && row <= maxRow
+                        && Math.floorMod(column - firstColumn, longitudeCells) < columns) {
+                    visitCell(cell.getValue(), latitude, longitude, radius, visitor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visit the airports by increasing great-circle distance from the given point, until the visitor asks to stop.
+     * <p>
+     * Best-first search over rings of cells: the airports of the cells at each ring around the cell of the point are
+     * queued by distance, then visited while no airport of the outer rings can be closer, which is bounded from the
+     * latitude and longitude gaps to the next ring. Once more cells have been looked at than are populated, the
+     * airports of the remaining populated cells are queued at once instead.
+     *
+     * @param latitude  latitude of the point in degrees
+     * @param longitude longitude of the point in degrees
+     * @param visitor   receives each airport together with its distance from the point in KM, returns false to stop
+     */
+    public void forEachNearest(double latitude, double longitude, BiPredicate<Airport, Double> visitor) {
+        if (cells.isEmpty()) {
+            return;
+        }
+
+        int centerRow = latitudeRow(latitude);
+        int centerColumn = longitudeColumn(longitude);
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        double[] latitudeTerms = new double[latitudeCells];
+
+        int lookedUpCells = 0;
+        for (int ring = 0; ; ring++) {
+            lookedUpCells += queueRing(queue, ring, centerRow, centerColumn, latitude, longitude);
+
+            double outerDistance = outerRingDistance(ring + 1, centerRow, centerColumn, latitude, longitude,
+                    latitudeTerms);
+            if (outerDistance < Double.POSITIVE_INFINITY && lookedUpCells > cells.size()) {
+                // looking up empty cells costs more than queueing every populated one
+                for (Map.Entry<Long, List<Airport>> cell : cells.entrySet()) {
+                    int row = (int) (cell.getKey() / longitudeCells);
+                    int column = (int) (cell.getKey() % longitudeCells);
+                    if (Math.max(Math.abs(row - centerRow), columnOffset(column, centerColumn)) > ring) {
+                        queueCell(queue, cell.getValue(), latitude, longitude);
+                    }
+                }
+                outerDistance = Double.POSITIVE_INFINITY;
+            }
+
+            while (!queue.isEmpty() && queue.peek().distance <= outerDistance) {
+                Candidate candidate = queue.poll();
+                if (!visitor.test(candidate.airport, candidate.distance)) {
+                    return;
+                }
+            }
+            if (outerDistance == Double.POSITIVE_INFINITY) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Queue the airports of the cells at the given Chebyshev distance, in cells, from the center cell.
+     *
+     * @return the number of looked up cells
+     */
+    private int queueRing(PriorityQueue<Candidate> queue, int ring, int centerRow, int centerColumn,
+                          double latitude, double longitude) {
+        // rows at the ring distance, across the columns within the ring distance
+        int lookedUpCells = queueRingRow(queue, centerRow - ring, ring, centerColumn, latitude, longitude);
+        if (ring > 0) {
+            lookedUpCells += queueRingRow(queue, centerRow + ring, ring, centerColumn, latitude, longitude);
+        }
+
+        // columns at the ring distance, between those rows
+        if (ring > 0 && 2 * ring <= longitudeCells) {
+            int east = Math.floorMod(centerColumn + ring, longitudeCells);
+            int west = Math.floorMod(centerColumn - ring, longitudeCells);
+            int lastRow = Math.min(latitudeCells - 1, centerRow + ring - 1);
+
+            for (int row = Math.max(0, centerRow - ring + 1); row <= lastRow; row++) {
+                lookedUpCells++;
+                queueCell(queue, cells.get(cellKey(row, east)), latitude, longitude);
+                if (west != east) {
+                    lookedUpCells++;
+                    queueCell(queue, cells.get(cellKey(row, west)), latitude, longitude);
+                }
+            }
+        }
+        return lookedUpCells;
+    }
+
+    private int queueRingRow(PriorityQueue<Candidate> queue, int row, int ring, int centerColumn,
+                             double latitude, double longitude) {
+        if (row < 0 || row >= latitudeCells) {
+            return 0;
+        }
+
+        int columns = Math.min(2 * ring + 1, longitudeCells);
+        for (int offset = 0; offset < columns; offset++) {
+            int column = Math.floorMod(centerColumn - ring + offset, longitudeCells);
+            queueCell(queue, cells.get(cellKey(row, column)), latitude, longitude);
+        }
+        return columns;
+    }
+
+    private void queueCell(PriorityQueue<Candidate> queue, List<Airport> cell, double latitude, double longitude) {
+        if (cell != null) {
+            for (Airport airport : cell) {
+                double distance = AirportHelper.calculateDistance(latitude, longitude,
+                        airport.getLatitude(), airport.getLongitude());
+                queue.add(new Candidate(airport, distance));
+            }
+        }
+    }
+
+    /**
+     * Lower bound of the great-circle distance from a point to the cells at the given ring distance or more from its
+     * cell: such a cell is either that many rows away, or that many columns away in one of the rows in between. For
+     * the latter, the haversine of the distance is bounded by the latitude gap to the row, and the longitude gap to the
+     * ring weighted by the smallest cosine of the row.
+     *
+     * @param latitudeTerms haversine latitude terms of the rows in between, filled as the rings grow
+     * @return the bound in KM, infinite if there are no such cells
+     */
+    private double outerRingDistance(int ring, int centerRow, int centerColumn, double latitude, double longitude,
+                                     double[] latitudeTerms) {
+        // a latitude gap is at least as long along any path
+        double latitudeGap = Double.POSITIVE_INFINITY;
+        if (centerRow + ring < latitudeCells) {
+            latitudeGap = (centerRow + ring) * cellSize - 90 - latitude;
+        }
+        if (centerRow - ring >= 0) {
+            latitudeGap = Math.min(latitudeGap, latitude - ((centerRow - ring + 1) * cellSize - 90));
+        }
+        double distance = Math.toRadians(latitudeGap) * EARTH_RADIUS;
+
+        if (2 * ring <= longitudeCells) {
+            int firstRow = Math.max(0, centerRow - ring + 1);
+            int lastRow = Math.min(latitudeCells - 1, centerRow + ring - 1);
+            for (int row : new int[]{firstRow, lastRow}) {
+                // rows reached by this ring, the gap to a row is the gap to its nearest side
+                double rowGap = Math.max(0,
+                        Math.max(row * cellSize - 90 - latitude, latitude - ((row + 1) * cellSize - 90)));
+                latitudeTerms[row] = Math.pow(Math.sin(Math.toRadians(rowGap) / 2), 2);
+            }
+
+            double offsetInCell = ((longitude + 180 - centerColumn * cellSize) % 360 + 360) % 360;
+            double longitudeGap = Math.max(0,
+                    Math.min(ring * cellSize - offsetInCell, offsetInCell + (ring - 1) * cellSize));
+            double longitudeTerm = Math.cos(Math.toRadians(latitude))
+                    * Math.pow(Math.sin(Math.toRadians(longitudeGap) / 2), 2);
+
+            double haversine = Double.POSITIVE_INFINITY;
+            for (int row = firstRow; row <= lastRow; row++) {
+                haversine = Math.min(haversine, latitudeTerms[row] + Math.max(0, longitudeTerm * rowCosines[row]));
+            }
+            distance = Math.min(distance, 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(haversine))));
+        }
+        return distance;
+    }
+
+    /**
+     * @return the number of columns between two columns, going round the globe either way
+     */
+    private int columnOffset(int column, int centerColumn) {
+        int offset = Math.floorMod(column - centerColumn, longitudeCells);
+        return Math.min(offset, longitudeCells - offset);
+    }
+
+    private void visitCell(List<Airport> cell, double latitude, double longitude, double radius,
+                           BiConsumer<Airport, Double> visitor) {
+        for (Airport airport : cell) {
+            double distance = AirportHelper.calculateDistance(latitude, longitude,
+                    airport.getLatitude(), airport.getLongitude());
+            if (distance <= radius) {
+                visitor.accept(airport, distance);
+            }
+        }
+    }
+
+    private int latitudeRow(double latitude) {
+        int row = (int) Math.floor((latitude + 90) / cellSize);
+        return Math.max(0, Math.min(latitudeCells - 1, row));
+    }
+
+    private int longitudeColumn(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSize), longitudeCells);
+    }
+
+    private long cellKey(int row, int column) {
+        return (long) row * longitudeCells + column;
+    }
+
+    /**
+     * An airport to visit, ordered by distance
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        private final Airport airport;
+
+        private final double distance;
+
+        private Candidate(Airport airport, double distance) {
+            this.airport = airport;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
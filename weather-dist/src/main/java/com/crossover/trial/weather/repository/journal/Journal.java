@@ -0,0 +1,566 @@
+package com.crossover.trial.weather.repository.journal;
+
+import com.crossover.trial.weather.exception.ErrorCode;
+import com.crossover.trial.weather.exception.WeatherException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Durable log of the changes made to a key value store, recovered by replaying it when the store is opened.
+ * <p>
+ * Changes are appended to a journal segment by a single writer thread, which writes every change appended while
+ * it was busy at once and forces them to disk with a single fsync (group commit). Callers wait for
+ * {@link #awaitDurable(long)} to know their change survives a crash.
+ * <p>
+ * Once enough changes were written, the writer continues in a new segment and the previous segments are compacted
+ * in the background into a snapshot holding the last value of each key, from the previous snapshot and the segments
+ * only, so the live store is never locked. Recovery reads the latest snapshot then the segments written after it.
+ * <p>
+ * Files, in the journal directory:
+ * <ul>
+ * <li>{@code <name>-<n>.journal}: the changes of segment n</li>
+ * <li>{@code <name>-<n>.snapshot}: the values left by every segment before n</li>
+ * </ul>
+ * Each record is framed as its length, its CRC32 and its payload: a torn record at the end of a segment, left by a
+ * crash in the middle of a write, ends the replay of that segment.
+ *
+ * @param <V> type of the stored values
+ */
+public class Journal<V> implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(Journal.class.getName());
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private static final byte PUT = 1;
+
+    private static final byte DELETE = 2;
+
+    private static final byte CLEAR = 3;
+
+    /**
+     * length and CRC32 preceding the payload of each record
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * payload length beyond which a record header is taken as corrupt, far above the size of any stored value
+     */
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Conversion of the stored values from and to their bytes in the journal
+     */
+    public interface Codec<V> {
+        byte[] encode(V value);
+
+        V decode(String key, byte[] bytes);
+    }
+
+    /**
+     * Receives the changes replayed when the journal is opened
+     */
+    public interface Listener<V> {
+        void put(String key, V value);
+
+        void delete(String key);
+
+        void clear();
+    }
+
+    private final File directory;
+
+    private final String name;
+
+    private final Codec<V> codec;
+
+    /**
+     * number of records written since the last snapshot which triggers a compaction
+     */
+    private final int compactionThreshold;
+
+    private final Object pendingLock = new Object();
+
+    /**
+     * framed records appended and not yet handed to the writer, guarded by {@link #pendingLock}
+     */
+    private List<byte[]> pendingRecords = new ArrayList<>();
+
+    /**
+     * sequence number of the last appended record, guarded by {@link #pendingLock}
+     */
+    private long appendedSequence;
+
+    private boolean closed;
+
+    private final Object durableLock = new Object();
+
+    /**
+     * sequence number of the last record forced to disk, guarded by {@link #durableLock}
+     */
+    private long durableSequence;
+
+    /**
+     * first write failure, after which no record is accepted any more
+     */
+    private volatile IOException failure;
+
+    // segment state, only used by the writer thread once opened
+
+    private long segment;
+
+    private FileOutputStream segmentFile;
+
+    private OutputStream segmentStream;
+
+    private int recordsSinceSnapshot;
+
+    private volatile boolean compacting;
+
+    private final Thread writer;
+
+    private final ExecutorService compactor;
+
+    /**
+     * Open the journal, replaying the stored changes to the listener before accepting new ones
+     *
+     * @param directory           directory of the journal files, created if needed
+     * @param name                prefix of the journal files, unique within the directory
+     * @param codec               conversion of the values
+     * @param compactionThreshold number of records written since the last snapshot which triggers a compaction
+     * @param listener            receives the stored changes, in the order they were made
+     */
+    public Journal(File directory, String name, Codec<V> codec, int compactionThreshold, Listener<V> listener) {
+        this.directory = directory;
+        this.name = name;
+        this.codec = codec;
+        this.compactionThreshold = compactionThreshold;
+
+        try {
+            Files.createDirectories(directory.toPath());
+            recover(listener);
+            openSegment();
+        } catch (IOException e) {
+            throw storageFailure(e);
+        }
+
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        writer = new Thread(this::writeLoop, "journal-writer-" + name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return sequence number of the record, to wait for with {@link #awaitDurable(long)}
+     */
+    public long put(String key, V value) {
+        byte[] bytes = codec.encode(value);
+        return append(record(PUT, key, bytes));
+    }
+
+    /**
+     * @return sequence number of the record, to wait for with {@link #awaitDurable(long)}
+     */
+    public long delete(String key) {
+        return append(record(DELETE, key, null));
+    }
+
+    /**
+     * @return sequence number of the record, to wait for with {@link #awaitDurable(long)}
+     */
+    public long clear() {
+        return append(record(CLEAR, null, null));
+    }
+
+    /**
+     * Wait until the record of the given sequence number and every record before it are on disk
+     *
+     * @throws WeatherException if the journal could not be written
+     */
+    public void awaitDurable(long sequence) {
+        synchronized (durableLock) {
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WeatherException(ErrorCode.WEA_1005, name, "Interrupted while writing the journal.");
+                }
+            }
+        }
+        if (failure != null) {
+            throw storageFailure(failure);
+        }
+    }
+
+    /**
+     * Write the appended records then stop the journal
+     */
+    @Override
+    public void close() {
+        synchronized (pendingLock) {
+            closed = true;
+            pendingLock.notifyAll();
+        }
+        try {
+            writer.join();
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long append(byte[] record) {
+        if (failure != null) {
+            throw storageFailure(failure);
+        }
+
+        synchronized (pendingLock) {
+            if (closed) {
+                throw new WeatherException(ErrorCode.WEA_1005, name, "The journal is closed.");
+            }
+            pendingRecords.add(record);
+            pendingLock.notify();
+            return ++appendedSequence;
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<byte[]> batch;
+            long batchSequence;
+
+            synchronized (pendingLock) {
+                while (pendingRecords.isEmpty() && !closed) {
+                    try {
+                        pendingLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendingRecords.isEmpty()) {
+                    break;
+                }
+                batch = pendingRecords;
+                batchSequence = appendedSequence;
+                pendingRecords = new ArrayList<>();
+            }
+
+            try {
+                for (byte[] record : batch) {
+                    segmentStream.write(record);
+                }
+                segmentStream.flush();
+                segmentFile.getChannel().force(false);
+                markDurable(batchSequence);
+
+                recordsSinceSnapshot += batch.size();
+                if (recordsSinceSnapshot >= compactionThreshold && !compacting) {
+                    startCompaction();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Could not write journal " + name, e);
+                failure = e;
+                synchronized (durableLock) {
+                    durableLock.notifyAll();
+                }
+                return;
+            }
+        }
+
+        try {
+            segmentStream.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not close journal " + name, e);
+        }
+    }
+
+    private void markDurable(long sequence) {
+        synchronized (durableLock) {
+            durableSequence = sequence;
+            durableLock.notifyAll();
+        }
+    }
+
+    private void recover(Listener<V> listener) throws IOException {
+        long snapshot = latestSnapshot();
+        if (snapshot >= 0) {
+            readRecords(snapshotFile(snapshot), record -> replay(record, listener));
+        }
+
+        segment = Math.max(snapshot, 0);
+        for (long journal : numbers(JOURNAL_SUFFIX)) {
+            if (journal >= snapshot) {
+                readRecords(journalFile(journal), record -> {
+                    replay(record, listener);
+                    recordsSinceSnapshot++;
+                });
+                segment = journal + 1;
+            }
+        }
+    }
+
+    private void replay(Record record, Listener<V> listener) {
+        switch (record.operation) {
+            case PUT:
+                listener.put(record.key, codec.decode(record.key, record.value()));
+                break;
+            case DELETE:
+                listener.delete(record.key);
+                break;
+            case CLEAR:
+                listener.clear();
+                break;
+            default:
+                throw new IllegalStateException("unknown journal operation " + record.operation);
+        }
+    }
+
+    /**
+     * Continue writing in a new segment, the records written until now are compacted in the background
+     */
+    private void startCompaction() throws IOException {
+        long snapshot = segment + 1;
+        segmentStream.close();
+        segment = snapshot;
+        openSegment();
+
+        recordsSinceSnapshot = 0;
+        compacting = true;
+        compactor.execute(() -> {
+            try {
+                compact(snapshot);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not compact journal " + name, e);
+            } finally {
+                compacting = false;
+            }
+        });
+    }
+
+    /**
+     * Write the snapshot of every record before the given segment, then delete the files it replaces
+     */
+    private void compact(long snapshot) throws IOException {
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        Consumer<Record> compaction = record -> {
+            if (record.operation == PUT) {
+                values.put(record.key, record.payload);
+            } else if (record.operation == DELETE) {
+                values.remove(record.key);
+            } else {
+                values.clear();
+            }
+        };
+
+        long previous = latestSnapshot();
+        if (previous >= 0) {
+            readRecords(snapshotFile(previous), compaction);
+        }
+        for (long journal : numbers(JOURNAL_SUFFIX)) {
+            if (journal >= previous && journal < snapshot) {
+                readRecords(journalFile(journal), compaction);
+            }
+        }
+
+        File temporary = new File(directory, snapshotFile(snapshot).getName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary)) {
+            OutputStream stream = new BufferedOutputStream(file);
+            for (byte[] payload : values.values()) {
+                stream.write(frame(payload));
+            }
+            stream.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(temporary.toPath(), snapshotFile(snapshot).toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (long older : numbers(SNAPSHOT_SUFFIX)) {
+            if (older < snapshot) {
+                Files.deleteIfExists(snapshotFile(older).toPath());
+            }
+        }
+        for (long journal : numbers(JOURNAL_SUFFIX)) {
+            if (journal < snapshot) {
+                Files.deleteIfExists(journalFile(journal).toPath());
+            }
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentFile = new FileOutputStream(journalFile(segment), true);
+        segmentStream = new BufferedOutputStream(segmentFile);
+    }
+
+    private long latestSnapshot() {
+        List<Long> snapshots = numbers(SNAPSHOT_SUFFIX);
+        return snapshots.isEmpty() ? -1 : snapshots.get(snapshots.size() - 1);
+    }
+
+    /**
+     * @return the sorted numbers of the files of this journal with the given suffix
+     */
+    private List<Long> numbers(String suffix) {
+        List<Long> numbers = new ArrayList<>();
+        String prefix = name + "-";
+        String[] files = directory.list();
+
+        if (files != null) {
+            for (String file : files) {
+                if (file.startsWith(prefix) && file.endsWith(suffix)) {
+                    try {
+                        numbers.add(Long.parseLong(file.substring(prefix.length(), file.length() - suffix.length())));
+                    } catch (NumberFormatException e) {
+                        LOGGER.warning("Ignoring unexpected journal file " + file);
+                    }
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private File journalFile(long number) {
+        return new File(directory, name + "-" + number + JOURNAL_SUFFIX);
+    }
+
+    private File snapshotFile(long number) {
+        return new File(directory, name + "-" + number + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Read the records of a file, up to its end or its first torn record
+     */
+    private void readRecords(File file, Consumer<Record> consumer) throws IOException {
+        long remaining = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int first;
+            while ((first = in.read()) >= 0) {
+                byte[] payload;
+                try {
+                    int length = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8
+                            | in.readUnsignedByte();
+                    int crc = in.readInt();
+                    remaining -= HEADER_SIZE;
+                    // a corrupt length must not allocate more than the file could hold
+                    if (length <= 0 || length > MAX_RECORD_SIZE || length > remaining) {
+                        throw new EOFException("invalid record length " + length);
+                    }
+                    remaining -= length;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (crc != checksum(payload)) {
+                        throw new EOFException("invalid record checksum");
+                    }
+                } catch (EOFException e) {
+                    LOGGER.warning("Ignoring the end of " + file + " after a torn record");
+                    return;
+                }
+                consumer.accept(new Record(payload));
+            }
+        }
+    }
+
+    private static byte[] record(byte operation, String key, byte[] value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(operation);
+            if (key != null) {
+                out.writeUTF(key);
+            }
+            if (value != null) {
+                out.write(value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return frame(bytes.toByteArray());
+    }
+
+    private static byte[] frame(byte[] payload) {
+        return ByteBuffer.allocate(HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt(checksum(payload))
+                .put(payload)
+                .array();
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private WeatherException storageFailure(IOException e) {
+        return new WeatherException(ErrorCode.WEA_1005, name, e.getMessage());
+    }
+
+    /**
+     * A record read back from a journal file
+     */
+    private static final class Record {
+        private final byte[] payload;
+
+        private final byte operation;
+
+        private final String key;
+
+        /**
+         * offset of the value in the payload
+         */
+        private final int valueOffset;
+
+        private Record(byte[] payload) {
+            this.payload = payload;
+
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                operation = in.readByte();
+                key = operation == CLEAR ? null : in.readUTF();
+                valueOffset = payload.length - in.available();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private byte[] value() {
+            byte[] value = new byte[payload.length - valueOffset];
+            System.arraycopy(payload, valueOffset, value, 0, value.length);
+            return value;
+        }
+    }
+}
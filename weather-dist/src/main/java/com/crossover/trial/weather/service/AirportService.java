@@ -7,22 +7,36 @@ import com.crossover.trial.weather.exception.ErrorCode;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.repository.AirportRepository;
 import com.crossover.trial.weather.repository.AtmosphereRepository;
+import com.crossover.trial.weather.repository.HistoryRepository;
+import com.crossover.trial.weather.repository.catalogue.AirportCatalogue;
 import com.crossover.trial.weather.repository.factory.RepositoryFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 
 import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
 
 public class AirportService {
+    /**
+     * Shortest length in KM of the route segments whose surrounding circle is searched for the airports along a route.
+     * Shorter segments fit the corridor closer but cost more index visits
+     */
+    private static final double MIN_ROUTE_SEGMENT_LENGTH = 200;
+
     private AirportRepository airportRepository;
     private AtmosphereRepository atmosphereRepository;
-
-    public static final double EARTH_RADIUS = 6372.8;
+    private HistoryRepository historyRepository;
 
     public AirportService() throws WeatherException {
         airportRepository = RepositoryFactory.getAirportRepository(CURRENT_REPOSITORY_TYPE);
         atmosphereRepository = RepositoryFactory.getAtmosphereRepository(CURRENT_REPOSITORY_TYPE);
+        historyRepository = RepositoryFactory.getHistoryRepository(CURRENT_REPOSITORY_TYPE);
     }
 
     public Set<String> getAllAirportCodes() {
@@ -38,14 +52,162 @@ public class AirportService {
         return airportRepository.findAll();
     }
 
+    /**
+     * Find the airports within the radius of the given airport, the airport itself included, see
+     * {@link AirportRepository#findNeighbours}.
+     *
+     * @param centerAirport the airport at the centre of the search
+     * @param radius        the radius in KM
+     * @return the airports inside the radius
+     */
+    public List<Airport> findAirportsWithinRadius(Airport centerAirport, double radius) {
+        return airportRepository.findNeighbours(centerAirport.getIata(), radius);
+    }
+
+    /**
+     * Visit the airports within the radius of the given airport, the airport itself included, see
+     * {@link AirportRepository#forEachNeighbour}.
+     *
+     * @param centerAirport the airport at the centre of the search
+     * @param radius        the radius in KM
+     * @param visitor       called with each airport inside the radius
+     */
+    public void forEachAirportWithinRadius(Airport centerAirport, double radius, Consumer<Airport> visitor) {
+        airportRepository.forEachNeighbour(centerAirport.getIata(), radius, visitor);
+    }
+
+    /**
+     * Visit the airports within the radius of the given point, see {@link AirportRepository#forEachWithinRadius}.
+     *
+     * @param latitude  latitude of the centre in degrees
+     * @param longitude longitude of the centre in degrees
+     * @param radius    the radius in KM
+     * @param visitor   called with each airport inside the radius and its distance from the centre in KM
+     */
+    public void forEachAirportWithinRadius(double latitude, double longitude, double radius,
+                                           BiConsumer<Airport, Double> visitor) {
+        airportRepository.forEachWithinRadius(latitude, longitude, radius, visitor);
+    }
+
+    /**
+     * Visit the airports within the given distance of the great-circle route between two airports, the two airports
+     * included, in no particular order.
+     * <p>
+     * The route is cut in segments, the circle around each segment widened by the corridor width is searched in the
+     * spatial index, then the candidates are kept by their distance to the route: the cross-track distance when they
+     * project onto the route, the distance to the nearest end otherwise.
+     *
+     * @param fromAirport the departure airport
+     * @param toAirport   the arrival airport
+     * @param width       the largest distance from the route in KM
+     * @param visitor     called once with each airport of the corridor
+     * @throws WeatherException if the airports are antipodal, any great circle through them being a route
+     */
+    public void forEachAirportAlongRoute(Airport fromAirport, Airport toAirport, double width, RouteVisitor visitor)
+            throws WeatherException {
+        double routeLength = calculateDistance(fromAirport, toAirport);
+        if (Math.sin(routeLength / AirportHelper.EARTH_RADIUS) < 1e-6) {
+            // within metres of the same or antipodal points, the bearing and intermediate points of the route are
+            // undefined or lost in rounding errors
+            if (routeLength > AirportHelper.EARTH_RADIUS) {
+                throw new WeatherException(ErrorCode.WEA_1003, "route",
+                        "The airports should not be antipodal, no single great-circle route joins them.");
+            }
+            forEachAirportWithinRadius(fromAirport.getLatitude(), fromAirport.getLongitude(), width,
+                    (airport, distance) -> visitor.visit(airport, 0, distance));
+            return;
+        }
+
+        double routeBearing = AirportHelper.calculateInitialBearing(fromAirport.getLatitude(),
+                fromAirport.getLongitude(), toAirport.getLatitude(), toAirport.getLongitude());
+        int segments = (int) Math.max(1, Math.ceil(routeLength / Math.max(2 * width, MIN_ROUTE_SEGMENT_LENGTH)));
+
+        // the circles of consecutive segments overlap
+        Set<String> visitedAirports = new HashSet<>();
+        for (int segment = 0; segment < segments; segment++) {
+            double[] center = AirportHelper.calculateIntermediatePoint(fromAirport.getLatitude(),
+                    fromAirport.getLongitude(), toAirport.getLatitude(), toAirport.getLongitude(),
+                    (segment + 0.5) / segments);
+            double radius = routeLength / segments / 2 + width;
+
+            forEachAirportWithinRadius(center[0], center[1], radius, (airport, distance) -> {
+                if (!visitedAirports.add(AirportHelper.toIataKey(airport.getIata()))) {
+                    return;
+                }
+
+                double fromDistance = calculateDistance(fromAirport, airport);
+                double alongRoute = 0;
+                double offRoute = fromDistance;
+                if (routeLength > 0) {
+                    double angularDistance = fromDistance / AirportHelper.EARTH_RADIUS;
+                    double bearing = AirportHelper.calculateInitialBearing(fromAirport.getLatitude(),
+                            fromAirport.getLongitude(), airport.getLatitude(), airport.getLongitude());
+                    double crossTrack = Math.asin(Math.sin(angularDistance) * Math.sin(bearing - routeBearing));
+                    double alongTrack = Math.acos(
+                            Math.max(-1, Math.min(1, Math.cos(angularDistance) / Math.cos(crossTrack))));
+                    alongRoute = Math.signum(Math.cos(bearing - routeBearing)) * alongTrack * AirportHelper.EARTH_RADIUS;
+
+                    if (alongRoute > routeLength) {
+                        alongRoute = routeLength;
+                        offRoute = calculateDistance(toAirport, airport);
+                    } else if (alongRoute > 0) {
+                        offRoute = Math.abs(crossTrack) * AirportHelper.EARTH_RADIUS;
+                    } else {
+                        alongRoute = 0;
+                    }
+                }
+
+                if (offRoute <= width) {
+                    visitor.visit(airport, alongRoute, offRoute);
+                }
+            });
+        }
+    }
+
+    /**
+     * Visit the airports nearest first from the given point, see {@link AirportRepository#forEachNearest}.
+     *
+     * @param latitude  latitude of the point in degrees
+     * @param longitude longitude of the point in degrees
+     * @param visitor   called with each airport and its distance from the point in KM, returns false to stop
+     */
+    public void forEachNearestAirport(double latitude, double longitude, BiPredicate<Airport, Double> visitor) {
+        airportRepository.forEachNearest(latitude, longitude, visitor);
+    }
+
+    /**
+     * Load the airports of a binary catalogue, unless airports are already known, e.g. recovered by a FILE
+     * repository. The airports get no atmospheric information until their first data point is collected.
+     *
+     * @param catalogue a catalogue written by {@link com.crossover.trial.weather.agent.AirportCatalogueConverter}
+     * @return the number of loaded airports
+     */
+    public int loadCatalogue(File catalogue) throws IOException {
+        if (!airportRepository.getAllAirportCodes().isEmpty()) {
+            return 0;
+        }
+
+        List<Airport> airports = AirportCatalogue.read(catalogue);
+        airportRepository.addAirports(airports);
+        return airports.size();
+    }
+
     public boolean deleteAirport(String iataCode) {
         checkNotFoundAirport(iataCode);
+        // the airport goes first: a data point applied meanwhile is either recorded before its weather and history
+        // are deleted, or finds the airport gone
+        boolean deleted = airportRepository.delete(iataCode);
         atmosphereRepository.delete(iataCode);
-        return airportRepository.delete(iataCode);
+        historyRepository.delete(iataCode);
+        return deleted;
+    }
+
+    public boolean isExist(String iataCode) {
+        return airportRepository.isExist(iataCode);
     }
 
     public void checkNotFoundAirport(String iataCode) {
-        if (!airportRepository.isExist(iataCode)) {
+        if (!isExist(iataCode)) {
             String dataType = new StringBuilder("airport ").append(iataCode).toString();
             throw new WeatherException(ErrorCode.WEA_1002, dataType, "IATA code");
         }
@@ -93,15 +255,19 @@ public class AirportService {
      * @return the distance in KM
      */
     public double calculateDistance(Airport fromAirport, Airport toAirport) {
-        double deltaLat = Math.toRadians(toAirport.getLatitude() - fromAirport.getLatitude());
-        double deltaLon = Math.toRadians(toAirport.getLongitude() - fromAirport.getLongitude());
-
-        double a =  Math.pow(Math.sin(deltaLat / 2), 2)
-                + Math.pow(Math.sin(deltaLon / 2), 2)
-                * Math.cos(Math.toRadians(fromAirport.getLatitude()))
-                * Math.cos(Math.toRadians(toAirport.getLatitude()));
-        double c = 2 * Math.asin(Math.sqrt(a));
+        return AirportHelper.calculateDistance(fromAirport.getLatitude(), fromAirport.getLongitude(),
+                toAirport.getLatitude(), toAirport.getLongitude());
+    }
 
-        return EARTH_RADIUS * c;
+    /**
+     * Receives the airports along a route, see {@link #forEachAirportAlongRoute}
+     */
+    public interface RouteVisitor {
+        /**
+         * @param airport    an airport of the corridor
+         * @param alongRoute the distance in KM from the departure to the closest point of the route
+         * @param offRoute   the distance in KM from the route
+         */
+        void visit(Airport airport, double alongRoute, double offRoute);
     }
 }
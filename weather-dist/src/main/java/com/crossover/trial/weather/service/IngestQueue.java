@@ -0,0 +1,210 @@
+package com.crossover.trial.weather.service;
+
+import com.crossover.trial.weather.common.AirportHelper;
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.entity.DataPoint;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded queue of validated weather updates, applied in the background so the threads serving the collection sites
+ * only pay for the validation.
+ * <p>
+ * The queue is split in one shard per applier thread, an airport always going to the same shard so its updates are
+ * applied in the order they were received. Each applier takes the updates queued while it was busy at once, up to a
+ * batch size, and hands them to the {@link Applier} grouped by airport.
+ */
+public class IngestQueue implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(IngestQueue.class.getName());
+
+    /**
+     * how long an applier waits for an update before checking whether the queue is closed
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    /**
+     * A data point waiting to be applied
+     */
+    public static class Update {
+        private final String iataKey;
+
+        private final DataPointType pointType;
+
+        private final DataPoint dataPoint;
+
+        /**
+         * time the update was received in milliseconds since UTC epoch, the update time of the data point
+         */
+        private final long receivedTime;
+
+        Update(String iataKey, DataPointType pointType, DataPoint dataPoint, long receivedTime) {
+            this.iataKey = iataKey;
+            this.pointType = pointType;
+            this.dataPoint = dataPoint;
+            this.receivedTime = receivedTime;
+        }
+
+        public DataPointType getPointType() {
+            return pointType;
+        }
+
+        public DataPoint getDataPoint() {
+            return dataPoint;
+        }
+
+        public long getReceivedTime() {
+            return receivedTime;
+        }
+    }
+
+    /**
+     * Applies the updates of an airport, called from the applier threads
+     */
+    public interface Applier {
+        /**
+         * @param iataCode the canonical IATA code of the airport
+         * @param updates  the updates of the airport, in the order they were received
+         */
+        void apply(String iataCode, List<Update> updates);
+    }
+
+    private final List<BlockingQueue<Update>> shards;
+
+    private final int batchSize;
+
+    private final Applier applier;
+
+    private final List<Thread> appliers;
+
+    private volatile boolean closed;
+
+    /**
+     * held for reading by the offers and for writing by the close, so no update is queued once the appliers may
+     * have seen the queue closed and empty
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    /**
+     * Start the applier threads
+     *
+     * @param capacity  number of updates the queue holds before refusing new ones, shared between the shards
+     * @param threads   number of applier threads
+     * @param batchSize largest number of updates an applier takes at once
+     * @param applier   applies the updates
+     */
+    public IngestQueue(int capacity, int threads, int batchSize, Applier applier) {
+        this.batchSize = batchSize;
+        this.applier = applier;
+
+        shards = new ArrayList<>(threads);
+        appliers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            BlockingQueue<Update> shard = new ArrayBlockingQueue<>(Math.max(1, capacity / threads));
+            Thread thread = new Thread(() -> applyLoop(shard), "ingest-applier-" + i);
+            thread.setDaemon(true);
+
+            shards.add(shard);
+            appliers.add(thread);
+        }
+        appliers.forEach(Thread::start);
+    }
+
+    /**
+     * Queue an update without waiting
+     *
+     * @param iataCode  the 3 letter IATA code
+     * @param pointType the point type of the data point
+     * @param dataPoint the validated data point
+     * @return false if the shard of the airport is full or the queue closed, the update being dropped
+     */
+    public boolean offer(String iataCode, DataPointType pointType, DataPoint dataPoint) {
+        String iataKey = AirportHelper.toIataKey(iataCode);
+        BlockingQueue<Update> shard = shards.get(Math.floorMod(iataKey.hashCode(), shards.size()));
+
+        closeLock.readLock().lock();
+        try {
+            return !closed && shard.offer(new Update(iataKey, pointType, dataPoint, System.currentTimeMillis()));
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of updates waiting to be applied
+     */
+    public int size() {
+        return shards.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    /**
+     * Refuse new updates, apply the queued ones then stop the applier threads
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        try {
+            for (Thread thread : appliers) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void applyLoop(BlockingQueue<Update> shard) {
+        List<Update> batch = new ArrayList<>(batchSize);
+
+        while (true) {
+            try {
+                Update first = shard.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && shard.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+
+                batch.add(first);
+                shard.drainTo(batch, batchSize - 1);
+                applyBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void applyBatch(List<Update> batch) {
+        Map<String, List<Update>> updatesByAirport = new LinkedHashMap<>();
+        for (Update update : batch) {
+            updatesByAirport.computeIfAbsent(update.iataKey, key -> new ArrayList<>()).add(update);
+        }
+
+        updatesByAirport.forEach((iataCode, updates) -> {
+            try {
+                applier.apply(iataCode, updates);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not apply " + updates.size() + " updates of " + iataCode, e);
+            }
+        });
+    }
+}
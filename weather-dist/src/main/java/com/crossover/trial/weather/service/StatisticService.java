@@ -1,6 +1,5 @@
 package com.crossover.trial.weather.service;
 
-import com.crossover.trial.weather.entity.Airport;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.repository.FrequencyRepository;
 import com.crossover.trial.weather.repository.factory.RepositoryFactory;
@@ -35,34 +34,29 @@ public class StatisticService {
     }
 
     public Map<String, Double> computeRequestFrequencies() {
-        Map<String, Double> frequencies = new HashMap<>();
+        Set<String> iataCodes = airportService.getAllAirportCodes();
+        Map<String, Double> frequencies = new HashMap<>(iataCodes.size() * 4 / 3 + 1);
 
         long totalRequest = frequencyRepository.getTotalRequest();
-        for (Airport airport : airportService.getAllAirports()) {
+        for (String iataCode : iataCodes) {
             double percentage = 0;
-            int numberRequest = frequencyRepository.getRequestFrequency(airport.getIata(), 0);
 
             if (totalRequest != 0) {
+                int numberRequest = frequencyRepository.getRequestFrequency(iataCode, 0);
                 percentage = (double) numberRequest / totalRequest;
             }
-            frequencies.put(airport.getIata(), percentage);
+            frequencies.put(iataCode, percentage);
         }
 
         return frequencies;
     }
 
+    /**
+     * Request counts per radius bucket, with the default linear scale index i counts the radiuses in [i, i + 1) km
+     *
+     * @return request count of each radius bucket
+     */
     public int[] computeRadiusFrequencies() {
-        Set<Double> allRecordedRadius = frequencyRepository.getAllRadiuses();
-        int maxRadius = allRecordedRadius.stream()
-                .max(Double::compare)
-                .orElse(0d).intValue() + 1;
-
-        int[] ranges = new int[maxRadius];
-        for (Double radius : allRecordedRadius) {
-            int index = radius.intValue();
-            ranges[index] += frequencyRepository.getRadiusFrequency(radius);
-        }
-
-        return ranges;
+        return frequencyRepository.getRadiusHistogram();
     }
 }
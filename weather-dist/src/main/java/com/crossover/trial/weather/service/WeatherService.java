@@ -1,23 +1,59 @@
 package com.crossover.trial.weather.service;
 
+import com.crossover.trial.weather.common.AirportHelper;
 import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.common.HistoryResolution;
+import com.crossover.trial.weather.common.JSONHelper;
 import com.crossover.trial.weather.common.WeatherHelper;
 import com.crossover.trial.weather.entity.Airport;
+import com.crossover.trial.weather.entity.AirportWeather;
 import com.crossover.trial.weather.entity.AtmosphericInformation;
+import com.crossover.trial.weather.entity.AtmosphericInformationList;
 import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointRecord;
+import com.crossover.trial.weather.entity.DataPointResult;
+import com.crossover.trial.weather.entity.DataPointSample;
+import com.crossover.trial.weather.entity.DataPointStreamResult;
+import com.crossover.trial.weather.entity.RouteWeather;
+import com.crossover.trial.weather.entity.WeatherEstimate;
+import com.crossover.trial.weather.entity.WeatherSummary;
 import com.crossover.trial.weather.exception.ErrorCode;
+import com.crossover.trial.weather.exception.GlobalExceptionHandler;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.repository.AtmosphereRepository;
+import com.crossover.trial.weather.repository.HistoryRepository;
 import com.crossover.trial.weather.repository.factory.RepositoryFactory;
 import com.crossover.trial.weather.service.factory.ServiceRegistryFactory;
+import com.google.gson.JsonParseException;
+import org.eclipse.jetty.http.HttpStatus;
 
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
+import static com.crossover.trial.weather.configuration.AppConfig.ESTIMATE_MAX_DISTANCE;
+import static com.crossover.trial.weather.configuration.AppConfig.HEALTH_STATUS_REFRESH_INTERVAL;
+import static com.crossover.trial.weather.configuration.AppConfig.INGEST_ASYNC;
+import static com.crossover.trial.weather.configuration.AppConfig.INGEST_BATCH_SIZE;
+import static com.crossover.trial.weather.configuration.AppConfig.INGEST_QUEUE_CAPACITY;
+import static com.crossover.trial.weather.configuration.AppConfig.INGEST_THREADS;
+import static com.crossover.trial.weather.configuration.AppConfig.NEAREST_MAX_COUNT;
+import static com.crossover.trial.weather.configuration.AppConfig.STREAM_MAX_REJECTIONS;
 
 public class WeatherService {
     public static final String DATA_SIZE_HEALTH = "datasize";
@@ -26,16 +62,42 @@ public class WeatherService {
 
     private AtmosphereRepository atmosphereRepository;
 
+    private HistoryRepository historyRepository;
+
     private AirportService airportService;
 
     private StatisticService statisticService;
 
+    /**
+     * data points waiting to be applied, null unless in asynchronous ingest mode
+     */
+    private final IngestQueue ingestQueue;
+
+    /**
+     * last computed health status, see {@link #getHealthStatus()}
+     */
+    private volatile HealthStatusSnapshot healthStatus;
+
     public WeatherService() throws WeatherException, InstantiationException, IllegalAccessException {
+        this(RepositoryFactory.getAtmosphereRepository(CURRENT_REPOSITORY_TYPE),
+                INGEST_ASYNC ? INGEST_QUEUE_CAPACITY : 0);
+    }
+
+    /**
+     * @param atmosphereRepository the store of the airports weather, such as a wrapper of the configured one
+     * @param ingestQueueCapacity  number of data points queued in asynchronous ingest mode, 0 to apply them at once
+     */
+    public WeatherService(AtmosphereRepository atmosphereRepository, int ingestQueueCapacity)
+            throws WeatherException, InstantiationException, IllegalAccessException {
         ServiceRegistryFactory serviceFactory = ServiceRegistryFactory.getInstance();
         airportService = serviceFactory.getService(AirportService.class);
         statisticService = serviceFactory.getService(StatisticService.class);
 
-        atmosphereRepository = RepositoryFactory.getAtmosphereRepository(CURRENT_REPOSITORY_TYPE);
+        this.atmosphereRepository = atmosphereRepository;
+        historyRepository = RepositoryFactory.getHistoryRepository(CURRENT_REPOSITORY_TYPE);
+
+        ingestQueue = ingestQueueCapacity > 0 ? new IngestQueue(ingestQueueCapacity, INGEST_THREADS,
+                INGEST_BATCH_SIZE, this::applyDataPoints) : null;
     }
 
     /**
@@ -47,82 +109,342 @@ public class WeatherService {
      * @throws WeatherException if the update can not be completed
      */
     public void addDataPoint(String iataCode, String pointType, DataPoint dataPoint) throws WeatherException {
+        DataPointType weatherType = checkDataPoint(iataCode, pointType, dataPoint);
+        applyDataPoint(iataCode, weatherType, dataPoint, System.currentTimeMillis());
+    }
+
+    /**
+     * Validate the collected data then apply it, or queue it to be applied in the background in asynchronous ingest
+     * mode, see {@link com.crossover.trial.weather.configuration.AppConfig#INGEST_ASYNC}.
+     *
+     * @param iataCode  the 3 letter IATA code
+     * @param pointType the point type {@link DataPointType}
+     * @param dataPoint a datapoint object holding pointType data
+     * @return true if the data point was applied, false if it was queued
+     * @throws WeatherException if the data is invalid or the queue full
+     */
+    public boolean submitDataPoint(String iataCode, String pointType, DataPoint dataPoint) throws WeatherException {
+        if (ingestQueue == null) {
+            addDataPoint(iataCode, pointType, dataPoint);
+            return true;
+        }
+
+        DataPointType weatherType = checkDataPoint(iataCode, pointType, dataPoint);
+        if (!ingestQueue.offer(iataCode, weatherType, dataPoint)) {
+            throw new WeatherException(ErrorCode.WEA_1006, "data point", "Too many updates are waiting to be applied.");
+        }
+        return false;
+    }
+
+    /**
+     * Stop accepting data points in asynchronous ingest mode, once the queued ones are applied
+     */
+    public void stopIngest() {
+        if (ingestQueue != null) {
+            ingestQueue.close();
+        }
+    }
+
+    private DataPointType checkDataPoint(String iataCode, String pointType, DataPoint dataPoint)
+            throws WeatherException {
         airportService.checkNotFoundAirport(iataCode);
-        AtmosphericInformation atmosphericInformation = atmosphereRepository.find(iataCode);
+        if (dataPoint == null) {
+            throw new WeatherException(ErrorCode.WEA_1003, "data point", "Data point should not be empty.");
+        }
+
+        DataPointType weatherType = toDataPointType(pointType);
+        WeatherHelper.checkDataPoint(weatherType, dataPoint);
+        return weatherType;
+    }
 
-        if (atmosphericInformation == null) {
-            atmosphericInformation = new AtmosphericInformation();
+    private void applyDataPoint(String iataCode, DataPointType weatherType, DataPoint dataPoint, long updateTime)
+            throws WeatherException {
+        if (!applyDataPoints(iataCode, Collections.singletonList(new IngestQueue.Update(
+                AirportHelper.toIataKey(iataCode), weatherType, dataPoint, updateTime)))) {
+            throw airportNotFound(iataCode);
         }
+    }
 
-        updateWeatherInformation(atmosphericInformation, pointType, dataPoint);
-        atmosphereRepository.save(iataCode, atmosphericInformation);
+    /**
+     * Apply the data points of an airport with a single write of its atmospheric information, unless it was deleted
+     * since they were validated. Each data point is still recorded in the history.
+     * <p>
+     * The history is recorded while the airport is locked by the write, so it keeps the order of the snapshots and
+     * a deletion of the airport, which first removes it then its weather and history, can not be undone by a late
+     * write.
+     *
+     * @param iataCode the 3 letter IATA code
+     * @param updates  the validated data points of the airport, in the order they were received
+     * @return false if the airport was deleted, the data points being dropped
+     * @throws WeatherException if the repository could not store the new atmospheric information
+     */
+    private boolean applyDataPoints(String iataCode, List<IngestQueue.Update> updates) throws WeatherException {
+        boolean[] applied = new boolean[1];
+
+        // readers keep seeing the previous snapshot until the next one replaces it
+        atmosphereRepository.update(iataCode, atmosphericInformation -> {
+            applied[0] = airportService.isExist(iataCode);
+            if (!applied[0]) {
+                return atmosphericInformation;
+            }
+
+            AtmosphericInformation updated =
+                    atmosphericInformation == null ? new AtmosphericInformation() : atmosphericInformation;
+            for (IngestQueue.Update update : updates) {
+                updated = updated.withDataPoint(update.getPointType(), update.getDataPoint(), update.getReceivedTime());
+                historyRepository.record(iataCode, update.getPointType(), updated.getLastUpdateTime(),
+                        update.getDataPoint());
+            }
+            return updated;
+        });
+        return applied[0];
+    }
+
+    private static WeatherException airportNotFound(String iataCode) {
+        return new WeatherException(ErrorCode.WEA_1002, "airport " + iataCode, "IATA code");
     }
 
     /**
-     * update atmospheric information with the given data point for the given point type
+     * Get the data points of a type collected for an airport within a time range. Only the latest data points of each
+     * type are kept, over a span depending on the resolution, see {@link com.crossover.trial.weather.configuration.AppConfig}.
      *
-     * @param atmosphericInformation the atmospheric information object to update
-     * @param pointType              the data point type as a string
-     * @param dataPoint              the actual data point
+     * @param iataCode   the 3 letter IATA code
+     * @param pointType  the point type {@link DataPointType}
+     * @param resolution the resolution {@link HistoryResolution#getParameter()}, raw data points if not given
+     * @param from       start of the time range in milliseconds since UTC epoch, inclusive
+     * @param to         end of the time range in milliseconds since UTC epoch, inclusive
+     * @return the data points collected within the range, or their merge over the buckets of the resolution, oldest
+     * first
+     * @throws WeatherException if the airport is unknown, the point type or resolution invalid or the range reversed
      */
-    private void updateWeatherInformation(AtmosphericInformation atmosphericInformation, String pointType,
-                                          DataPoint dataPoint) throws WeatherException {
+    public List<DataPointSample> getHistory(String iataCode, String pointType, String resolution, long from, long to)
+            throws WeatherException {
+        airportService.checkNotFoundAirport(iataCode);
+        DataPointType weatherType = toDataPointType(pointType);
+        HistoryResolution historyResolution = toHistoryResolution(resolution);
+        if (from > to) {
+            throw new WeatherException(ErrorCode.WEA_1003, "time range", "The start should not be after the end.");
+        }
+
+        return historyRepository.find(iataCode, weatherType, historyResolution, from, to);
+    }
+
+    private HistoryResolution toHistoryResolution(String resolution) throws WeatherException {
+        if (resolution == null || resolution.isEmpty()) {
+            return HistoryResolution.RAW;
+        }
+
+        HistoryResolution historyResolution = HistoryResolution.fromParameter(resolution);
+        if (historyResolution == null) {
+            String resolutions = Arrays.stream(HistoryResolution.values())
+                    .map(HistoryResolution::getParameter)
+                    .collect(Collectors.joining(", "));
+            throw new WeatherException(ErrorCode.WEA_1003, "resolution", "Should be one of " + resolutions + ".");
+        }
+        return historyResolution;
+    }
+
+    /**
+     * Update the airports weather data with a batch of collected data points. Every record is validated on its own,
+     * a rejected record does not prevent the others from being applied. The data points of an airport are applied
+     * together, with a single write of its atmospheric information, and are reported once written: the data points
+     * of an airport deleted or not stored meanwhile are rejected.
+     *
+     * @param records the data points with their airport and point type
+     * @return the outcome of each record, in the order of the given records
+     */
+    public List<DataPointResult> addDataPoints(List<DataPointRecord> records) {
+        DataPointResult[] results = new DataPointResult[records.size()];
+        Map<String, List<PendingDataPoint>> pending = new LinkedHashMap<>();
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = addDataPoint(records.get(i), i, pending);
+        }
+        applyPendingDataPoints(pending, (dataPoint, result) -> results[dataPoint.index] = result);
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Update the airports weather data with a stream of newline delimited json records like
+     * {@link #addDataPoints(List)}. The records read are applied together once the parser has used up the data
+     * received and would wait for more, so a collection site keeping the stream open sees its updates applied at
+     * once, and by groups of {@link com.crossover.trial.weather.configuration.AppConfig#INGEST_BATCH_SIZE} while the
+     * stream keeps flowing. Only counts and the first rejected records are kept, so any number of records can be
+     * streamed. The records read before the stream turns out not to be valid json remain applied.
+     *
+     * @param stream the data points with their airport and point type
+     * @return the counts of applied and rejected records, and the reason why the stream was not read to its end if
+     * it was not
+     */
+    public DataPointStreamResult addDataPoints(Reader stream) {
+        DataPointStreamResult result = new DataPointStreamResult(STREAM_MAX_REJECTIONS);
+        BiConsumer<PendingDataPoint, DataPointResult> outcome = (dataPoint, dataPointResult) ->
+                result.addResult(dataPointResult);
+        Map<String, List<PendingDataPoint>> pending = new LinkedHashMap<>();
+        // the parser buffers the stream, only its reads tell when the records received so far are all parsed
+        Iterator<DataPointRecord> records = JSONHelper.fromJsonStream(
+                new PausingReader(stream, () -> applyPendingDataPoints(pending, outcome)), DataPointRecord.class);
+        int pendingCount = 0;
+        long read = 0;
 
         try {
-            final DataPointType weatherType = DataPointType.valueOf(pointType.toUpperCase());
-
-            switch (weatherType) {
-                case WIND:
-                    WeatherHelper.checkWind(dataPoint);
-                    atmosphericInformation.setWind(dataPoint);
-                    atmosphericInformation.setLastUpdateTime(System.currentTimeMillis());
-                    break;
-                case TEMPERATURE:
-                    WeatherHelper.checkTemperature(dataPoint);
-                    atmosphericInformation.setTemperature(dataPoint);
-                    atmosphericInformation.setLastUpdateTime(System.currentTimeMillis());
-                    break;
-                case HUMIDITY:
-                    WeatherHelper.checkHumidity(dataPoint);
-                    atmosphericInformation.setHumidity(dataPoint);
-                    atmosphericInformation.setLastUpdateTime(System.currentTimeMillis());
-                    break;
-                case PRESSURE:
-                    WeatherHelper.checkPressure(dataPoint);
-                    atmosphericInformation.setPressure(dataPoint);
-                    atmosphericInformation.setLastUpdateTime(System.currentTimeMillis());
-                    break;
-                case CLOUD_COVER:
-                    WeatherHelper.checkCloudCover(dataPoint);
-                    atmosphericInformation.setCloudCover(dataPoint);
-                    atmosphericInformation.setLastUpdateTime(System.currentTimeMillis());
-                    break;
-                case PRECIPITATION:
-                    WeatherHelper.checkPrecipitation(dataPoint);
-                    atmosphericInformation.setPrecipitation(dataPoint);
-                    atmosphericInformation.setLastUpdateTime(System.currentTimeMillis());
-                    break;
+            while (records.hasNext()) {
+                DataPointRecord record = records.next();
+                read++;
+                if (pending.isEmpty()) {
+                    // applied while the stream was read
+                    pendingCount = 0;
+                }
+
+                DataPointResult recordResult = addDataPoint(record, 0, pending);
+                if (recordResult != null) {
+                    result.addResult(recordResult);
+                } else if (++pendingCount >= INGEST_BATCH_SIZE) {
+                    applyPendingDataPoints(pending, outcome);
+                    pendingCount = 0;
+                }
             }
+        } catch (JsonParseException exception) {
+            result.setError("Invalid json after " + read + " records: " + exception.getMessage());
+        }
+        applyPendingDataPoints(pending, outcome);
+
+        return result;
+    }
+
+    /**
+     * Reader running an action before each read that would wait for the stream, once the data received so far is
+     * consumed
+     */
+    private static class PausingReader extends FilterReader {
+        private final Runnable beforeWait;
+
+        PausingReader(Reader stream, Runnable beforeWait) {
+            super(stream);
+            this.beforeWait = beforeWait;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!in.ready()) {
+                beforeWait.run();
+            }
+            return in.read();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (!in.ready()) {
+                beforeWait.run();
+            }
+            return in.read(buffer, offset, length);
+        }
+    }
+
+    /**
+     * Validate a record then queue it in asynchronous ingest mode, or add it to the data points pending in the
+     * request otherwise
+     *
+     * @param index the position of the record in the request
+     * @return the outcome of the record, null if it is pending
+     */
+    private DataPointResult addDataPoint(DataPointRecord record, int index, Map<String, List<PendingDataPoint>> pending) {
+        if (record == null) {
+            return new DataPointResult(null, null, ErrorCode.WEA_1003.getHttpStatus(), "Empty record");
+        }
+
+        try {
+            if (ingestQueue != null) {
+                submitDataPoint(record.getIata(), record.getPointType(), record.getDataPoint());
+                return new DataPointResult(record.getIata(), record.getPointType(), HttpStatus.ACCEPTED_202,
+                        "Accepted");
+            }
+
+            DataPointType weatherType = checkDataPoint(record.getIata(), record.getPointType(), record.getDataPoint());
+            String iataKey = AirportHelper.toIataKey(record.getIata());
+            pending.computeIfAbsent(iataKey, key -> new ArrayList<>()).add(new PendingDataPoint(record, index,
+                    new IngestQueue.Update(iataKey, weatherType, record.getDataPoint(), System.currentTimeMillis())));
+            return null;
+        } catch (WeatherException exception) {
+            return rejected(record, exception);
+        }
+    }
+
+    /**
+     * Apply the pending data points, airport by airport, then report the outcome of each. A failure to store the
+     * data points of an airport rejects them only.
+     */
+    private void applyPendingDataPoints(Map<String, List<PendingDataPoint>> pending,
+                                        BiConsumer<PendingDataPoint, DataPointResult> outcome) {
+        pending.forEach((iataKey, dataPoints) -> {
+            WeatherException failure = null;
+            try {
+                if (!applyDataPoints(iataKey, dataPoints.stream().map(dataPoint -> dataPoint.update)
+                        .collect(Collectors.toList()))) {
+                    failure = airportNotFound(iataKey);
+                }
+            } catch (WeatherException exception) {
+                failure = exception;
+            }
+
+            for (PendingDataPoint dataPoint : dataPoints) {
+                DataPointRecord record = dataPoint.record;
+                outcome.accept(dataPoint, failure != null ? rejected(record, failure)
+                        : new DataPointResult(record.getIata(), record.getPointType(), HttpStatus.OK_200, "OK"));
+            }
+        });
+        pending.clear();
+    }
+
+    private static DataPointResult rejected(DataPointRecord record, WeatherException exception) {
+        return new DataPointResult(record.getIata(), record.getPointType(), exception.getErrorCode().getHttpStatus(),
+                GlobalExceptionHandler.getMessage(exception));
+    }
+
+    private DataPointType toDataPointType(String pointType) throws WeatherException {
+        try {
+            if (pointType == null) {
+                throw new IllegalArgumentException("missing point type");
+            }
+            return DataPointType.valueOf(pointType.toUpperCase());
         } catch (IllegalArgumentException exception) {
             throw new WeatherException(ErrorCode.WEA_1001, "Illegal weather data type");
         }
-
     }
 
+    /**
+     * Health and statistics of the service. The result is computed at most once per
+     * {@link com.crossover.trial.weather.configuration.AppConfig#HEALTH_STATUS_REFRESH_INTERVAL}, pollers within
+     * the interval share the same figures.
+     *
+     * @return the data size, request frequency per airport and request frequency per radius
+     */
     public Map<String, Object> getHealthStatus() {
+        HealthStatusSnapshot snapshot = healthStatus;
+        long now = System.currentTimeMillis();
+
+        if (snapshot == null || now - snapshot.computedTime >= HEALTH_STATUS_REFRESH_INTERVAL) {
+            snapshot = new HealthStatusSnapshot(computeHealthStatus(), now);
+            healthStatus = snapshot;
+        }
+        return snapshot.healthStatuses;
+    }
+
+    private Map<String, Object> computeHealthStatus() {
         Map<String, Object> healthStatuses = new HashMap<>();
 
-        healthStatuses.put(DATA_SIZE_HEALTH, countDataSizeIn24Hours());
+        healthStatuses.put(DATA_SIZE_HEALTH, atmosphereRepository.countRecentlyUpdated());
         healthStatuses.put(IATA_REQUEST_HEALTH, statisticService.computeRequestFrequencies());
         healthStatuses.put(RADIUS_REQUEST_HEALTH, statisticService.computeRadiusFrequencies());
 
-        return healthStatuses;
+        return Collections.unmodifiableMap(healthStatuses);
     }
 
-    public List<AtmosphericInformation> getAirportWeather(String iataCode, double radius) throws WeatherException {
+    public AtmosphericInformationList getAirportWeather(String iataCode, double radius) throws WeatherException {
         airportService.checkNotFoundAirport(iataCode);
 
-        List<AtmosphericInformation> weather;
+        AtmosphericInformationList weather;
         if (radius == 0) {
             weather = getWeatherForSingleAirport(iataCode);
         } else {
@@ -131,15 +453,8 @@ public class WeatherService {
         return weather;
     }
 
-    private int countDataSizeIn24Hours() {
-        return (int) atmosphereRepository.findAll().stream()
-                .filter(information ->
-                        WeatherHelper.isNotEmpty(information) && WeatherHelper.isUpdatedWithin24Hours(information))
-                .count();
-    }
-
-    private List<AtmosphericInformation> getWeatherForSingleAirport(String iataCode) {
-        List<AtmosphericInformation> weather = new ArrayList<>();
+    private AtmosphericInformationList getWeatherForSingleAirport(String iataCode) {
+        AtmosphericInformationList weather = new AtmosphericInformationList(1);
         AtmosphericInformation atmosphere = atmosphereRepository.find(iataCode);
         if (WeatherHelper.isNotEmpty(atmosphere)) {
             weather.add(atmosphere);
@@ -147,14 +462,216 @@ public class WeatherService {
         return weather;
     }
 
-    private List<AtmosphericInformation> getWeatherWithinRadius(String iataCode, double radius) {
+    private AtmosphericInformationList getWeatherWithinRadius(String iataCode, double radius) {
         Airport fromAirport = airportService.getAirport(iataCode);
 
-        List<AtmosphericInformation> weather = airportService.getAllAirports().stream()
-                .filter(toAirport -> airportService.calculateDistance(fromAirport, toAirport) <= radius)
+        AtmosphericInformationList weather = airportService.findAirportsWithinRadius(fromAirport, radius).stream()
                 .map(airport -> atmosphereRepository.find(airport.getIata()))
                 .filter(atmosphericInformation -> WeatherHelper.isNotEmpty(atmosphericInformation))
-                .collect(Collectors.toList());
+                .collect(Collectors.toCollection(AtmosphericInformationList::new));
+        return weather;
+    }
+
+    /**
+     * Summarise the most up to date weather of the given airport and the airports in the given radius, merging the
+     * data points of each type in a single pass over the airports.
+     *
+     * @param iataCode the 3 letter IATA code of the airport at the centre of the region
+     * @param radius   the radius in KM, 0 for the airport only
+     * @return the merged weather of the region
+     * @throws WeatherException if the airport is unknown
+     */
+    public WeatherSummary getWeatherSummary(String iataCode, double radius) throws WeatherException {
+        airportService.checkNotFoundAirport(iataCode);
+
+        WeatherSummary.Builder summary = new WeatherSummary.Builder();
+        if (radius == 0) {
+            summary.withAirport(atmosphereRepository.find(iataCode));
+        } else {
+            Airport fromAirport = airportService.getAirport(iataCode);
+            airportService.forEachAirportWithinRadius(fromAirport, radius,
+                    airport -> summary.withAirport(atmosphereRepository.find(airport.getIata())));
+        }
+        return summary.build();
+    }
+
+    /**
+     * Get the most up to date weather of the airports within the radius of a position, which need not be an airport.
+     *
+     * @param latitude  latitude of the position in degrees
+     * @param longitude longitude of the position in degrees
+     * @param radius    the radius in KM
+     * @return the airports inside the radius having weather, with their weather and distance, nearest first
+     * @throws WeatherException if the position is out of range
+     */
+    public List<AirportWeather> getPositionWeather(double latitude, double longitude, double radius)
+            throws WeatherException {
+        AirportHelper.checkLatLonRange(latitude, longitude);
+
+        List<AirportWeather> weather = new ArrayList<>();
+        airportService.forEachAirportWithinRadius(latitude, longitude, radius, (airport, distance) -> {
+            AtmosphericInformation information = atmosphereRepository.find(airport.getIata());
+            if (WeatherHelper.isNotEmpty(information)) {
+                weather.add(new AirportWeather(airport, distance, information));
+            }
+        });
+        weather.sort(Comparator.comparingDouble(AirportWeather::getDistance));
+        return weather;
+    }
+
+    /**
+     * Get the most up to date weather of the airports along the great-circle route between two airports.
+     *
+     * @param fromIataCode the 3 letter IATA code of the departure airport
+     * @param toIataCode   the 3 letter IATA code of the arrival airport
+     * @param width        the largest distance in KM of an airport from the route
+     * @return the airports of the corridor having weather, with their weather and position, in the order of the route
+     * @throws WeatherException if an airport is unknown, the width negative or the airports antipodal
+     */
+    public List<RouteWeather> getRouteWeather(String fromIataCode, String toIataCode, double width)
+            throws WeatherException {
+        Airport fromAirport = airportService.getAirport(fromIataCode);
+        Airport toAirport = airportService.getAirport(toIataCode);
+        if (!(width >= 0)) {
+            throw new WeatherException(ErrorCode.WEA_1003, "corridor width", "Should not be negative.");
+        }
+
+        List<RouteWeather> weather = new ArrayList<>();
+        airportService.forEachAirportAlongRoute(fromAirport, toAirport, width, (airport, alongRoute, offRoute) -> {
+            AtmosphericInformation information = atmosphereRepository.find(airport.getIata());
+            if (WeatherHelper.isNotEmpty(information)) {
+                weather.add(new RouteWeather(airport, alongRoute, offRoute, information));
+            }
+        });
+        weather.sort(Comparator.comparingDouble(RouteWeather::getRouteDistance));
         return weather;
     }
+
+    /**
+     * Estimate the weather at a position from the weather of the nearest airports, see {@link WeatherEstimate}. Only
+     * the airports within {@link com.crossover.trial.weather.configuration.AppConfig#ESTIMATE_MAX_DISTANCE} contribute.
+     *
+     * @param latitude   latitude of the position in degrees
+     * @param longitude  longitude of the position in degrees
+     * @param neighbours the number of nearest airports to estimate each point type from, at most
+     *                   {@link com.crossover.trial.weather.configuration.AppConfig#NEAREST_MAX_COUNT}
+     * @param maxAge     how long ago in milliseconds a data point of an airport may have been last updated
+     * @return the estimated weather, without the point types no airport nearby has
+     * @throws WeatherException if the position, the number of airports or the age is invalid
+     */
+    public WeatherEstimate getWeatherEstimate(double latitude, double longitude, int neighbours, long maxAge)
+            throws WeatherException {
+        AirportHelper.checkLatLonRange(latitude, longitude);
+        checkNearestCount(neighbours);
+        if (maxAge < 0) {
+            throw new WeatherException(ErrorCode.WEA_1003, "maximum age", "Should not be negative.");
+        }
+
+        long oldestUpdateTime = System.currentTimeMillis() - maxAge;
+        WeatherEstimate.Builder estimate = new WeatherEstimate.Builder(latitude, longitude, neighbours);
+        airportService.forEachNearestAirport(latitude, longitude, (airport, distance) -> {
+            if (distance > ESTIMATE_MAX_DISTANCE) {
+                return false;
+            }
+
+            AtmosphericInformation information = atmosphereRepository.find(airport.getIata());
+            if (information == null || information.getLastUpdateTime() < oldestUpdateTime) {
+                return true;
+            }
+            return estimate.withAirport(information, distance, oldestUpdateTime);
+        });
+        return estimate.build();
+    }
+
+    /**
+     * Find the airports nearest to the given airport, the airport itself included, whose weather passes the filters.
+     *
+     * @param iataCode   the 3 letter IATA code
+     * @param count      the number of airports to find, at most
+     *                   {@link com.crossover.trial.weather.configuration.AppConfig#NEAREST_MAX_COUNT}
+     * @param pointTypes comma separated point types {@link DataPointType} the weather of an airport must all hold,
+     *                   any weather if not given
+     * @param maxAge     how long ago in milliseconds the given point types of an airport, or any of its weather if no
+     *                   type is given, may have been last updated, any age if null
+     * @return up to count airports with their weather and distance, nearest first
+     * @throws WeatherException if the airport is unknown, the count, a point type or the age invalid
+     */
+    public List<AirportWeather> getNearestWeather(String iataCode, int count, String pointTypes, Long maxAge)
+            throws WeatherException {
+        Airport centerAirport = airportService.getAirport(iataCode);
+        Set<DataPointType> weatherTypes = toDataPointTypes(pointTypes);
+        checkNearestCount(count);
+        if (maxAge != null && maxAge < 0) {
+            throw new WeatherException(ErrorCode.WEA_1003, "maximum age", "Should not be negative.");
+        }
+
+        long oldestUpdateTime = maxAge == null ? Long.MIN_VALUE : System.currentTimeMillis() - maxAge;
+        return findNearestWeather(centerAirport.getLatitude(), centerAirport.getLongitude(), count,
+                information -> information.getLastUpdateTime() >= oldestUpdateTime
+                        && weatherTypes.stream().allMatch(type -> information.getDataPoint(type) != null
+                        && information.getUpdateTime(type) >= oldestUpdateTime));
+    }
+
+    private List<AirportWeather> findNearestWeather(double latitude, double longitude, int count,
+                                                    Predicate<AtmosphericInformation> filter) {
+        List<AirportWeather> nearest = new ArrayList<>(count);
+
+        // the search stops at the count-th matching airport, only the airports closer than it are looked at
+        airportService.forEachNearestAirport(latitude, longitude, (airport, distance) -> {
+            AtmosphericInformation information = atmosphereRepository.find(airport.getIata());
+            if (WeatherHelper.isNotEmpty(information) && filter.test(information)) {
+                nearest.add(new AirportWeather(airport, distance, information));
+            }
+            return nearest.size() < count;
+        });
+        return nearest;
+    }
+
+    private void checkNearestCount(int count) throws WeatherException {
+        if (count < 1 || count > NEAREST_MAX_COUNT) {
+            throw new WeatherException(ErrorCode.WEA_1003, "airport count",
+                    "Should be between 1 and " + NEAREST_MAX_COUNT + ".");
+        }
+    }
+
+    private Set<DataPointType> toDataPointTypes(String pointTypes) throws WeatherException {
+        Set<DataPointType> weatherTypes = EnumSet.noneOf(DataPointType.class);
+        if (pointTypes != null && !pointTypes.trim().isEmpty()) {
+            for (String pointType : pointTypes.split(",")) {
+                weatherTypes.add(toDataPointType(pointType.trim()));
+            }
+        }
+        return weatherTypes;
+    }
+
+    /**
+     * A validated record of a request, waiting to be applied with the other data points of its airport
+     */
+    private static final class PendingDataPoint {
+        private final DataPointRecord record;
+
+        /**
+         * position of the record in the request
+         */
+        private final int index;
+
+        private final IngestQueue.Update update;
+
+        private PendingDataPoint(DataPointRecord record, int index, IngestQueue.Update update) {
+            this.record = record;
+            this.index = index;
+            this.update = update;
+        }
+    }
+
+    private static final class HealthStatusSnapshot {
+        private final Map<String, Object> healthStatuses;
+
+        private final long computedTime;
+
+        private HealthStatusSnapshot(Map<String, Object> healthStatuses, long computedTime) {
+            this.healthStatuses = healthStatuses;
+            this.computedTime = computedTime;
+        }
+    }
 }
@@ -0,0 +1,204 @@
+package com.crossover.trial.weather;
+
+import com.crossover.trial.weather.accesslog.AccessLog;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+public class AccessLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLog_concurrentRequests_allWritten() throws Exception {
+        File file = new File(folder.getRoot(), "logs/access.log");
+        AccessLog accessLog = new AccessLog(file, 1 << 16, Long.MAX_VALUE, 1);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int thread = 0; thread < 8; thread++) {
+            int threadNumber = thread;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 1000; i++) {
+                    Assert.assertTrue(accessLog.log(newEvent("/query/weather/T" + threadNumber + "/" + i)));
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        accessLog.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(8000, lines.size());
+        Assert.assertEquals(0, accessLog.getDropped());
+        Assert.assertTrue(lines.get(0).matches("\\S+ 127\\.0\\.0\\.1 GET /query/weather/T\\d/\\d+ 200 1500us"));
+
+        // the events of a thread are written in the order they were logged
+        for (int thread = 0; thread < 8; thread++) {
+            String prefix = "/query/weather/T" + thread + "/";
+            List<Integer> requests = new ArrayList<>();
+            for (String line : lines) {
+                int index = line.indexOf(prefix);
+                if (index >= 0) {
+                    requests.add(Integer.parseInt(line.substring(index + prefix.length(), line.indexOf(' ', index))));
+                }
+            }
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(i, (int) requests.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testClose_concurrentRequests_acceptedEventsWritten() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            File file = new File(folder.getRoot(), "access" + round + ".log");
+            AccessLog accessLog = new AccessLog(file, 1 << 16, Long.MAX_VALUE, 1);
+            AtomicInteger acceptedCount = new AtomicInteger();
+            AtomicBoolean closed = new AtomicBoolean();
+            CountDownLatch logging = new CountDownLatch(4);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+
+            for (int thread = 0; thread < 4; thread++) {
+                executor.execute(() -> {
+                    logging.countDown();
+                    while (!closed.get()) {
+                        if (accessLog.log(newEvent("/collect/ping"))) {
+                            acceptedCount.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            logging.await();
+            accessLog.close();
+            closed.set(true);
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            // an event accepted while the log was closing is written, not lost
+            long written = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).stream()
+                    .filter(line -> line.contains("/collect/ping"))
+                    .count();
+            Assert.assertEquals(acceptedCount.get(), written);
+        }
+    }
+
+    @Test
+    public void testLog_fileFull_rotated() throws Exception {
+        File file = new File(folder.getRoot(), "access.log");
+        AccessLog accessLog = new AccessLog(file, 1024, 1000, 2);
+        for (int i = 0; i < 100; i++) {
+            while (!accessLog.log(newEvent("/collect/ping"))) {
+                Thread.sleep(1);
+            }
+        }
+        accessLog.close();
+
+        Assert.assertTrue(file.exists());
+        Assert.assertTrue(new File(folder.getRoot(), "access.log.1").exists());
+        Assert.assertTrue(new File(folder.getRoot(), "access.log.2").exists());
+        Assert.assertFalse(new File(folder.getRoot(), "access.log.3").exists());
+        Assert.assertTrue(file.length() < 1000 + 100);
+    }
+
+    @Test
+    public void testLog_multibyteUri_rotatedOnEncodedSize() throws Exception {
+        File file = new File(folder.getRoot(), "access.log");
+        AccessLog accessLog = new AccessLog(file, 1024, 1000, 1);
+        String uri = "/query/weather/" + String.join("", Collections.nCopies(100, "\u00e9"));
+        for (int i = 0; i < 8; i++) {
+            while (!accessLog.log(newEvent(uri))) {
+                Thread.sleep(1);
+            }
+        }
+        accessLog.close();
+
+        // a line takes about 265 bytes but 165 chars, so the file is full after 4 lines rather than 7
+        File rotated = new File(folder.getRoot(), "access.log.1");
+        Assert.assertEquals(4, Files.readAllLines(rotated.toPath(), StandardCharsets.UTF_8).size());
+        Assert.assertEquals(4, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+        Assert.assertTrue(rotated.length() >= 1000 && rotated.length() < 1000 + 300);
+    }
+
+    @Test
+    public void testLog_rotationFails_reopenedAfterDelay() throws Exception {
+        File file = new File(folder.getRoot(), "access.log");
+        // a non empty directory in place of the rotated file makes the rotation fail
+        File obstacle = new File(folder.getRoot(), "access.log.1");
+        Assert.assertTrue(new File(obstacle, "file").mkdirs());
+
+        List<LogRecord> warnings = Collections.synchronizedList(new ArrayList<>());
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.WARNING) {
+                    warnings.add(record);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(AccessLog.class.getName());
+        logger.addHandler(handler);
+        try {
+            AccessLog accessLog = new AccessLog(file, 1024, 100, 1);
+            long deadline = System.currentTimeMillis() + 300;
+            while (System.currentTimeMillis() < deadline) {
+                accessLog.log(newEvent("/collect/ping"));
+                Thread.sleep(1);
+            }
+
+            // the failed rotation is reported once, the file is not reopened before the delay
+            Assert.assertEquals(1, warnings.size());
+            Assert.assertTrue(accessLog.getDropped() > 0);
+
+            Assert.assertTrue(new File(obstacle, "file").delete());
+            Assert.assertTrue(obstacle.delete());
+            Thread.sleep(1500);
+            Assert.assertTrue(accessLog.log(newEvent("/collect/ping/after")));
+            accessLog.close();
+
+            Assert.assertEquals(1, warnings.size());
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            Assert.assertTrue(lines.get(lines.size() - 1).contains("/collect/ping/after"));
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    private static AccessLog.Event newEvent(String uri) {
+        return new AccessLog.Event(System.currentTimeMillis(), "127.0.0.1", "GET", uri, 200,
+                TimeUnit.MICROSECONDS.toNanos(1500));
+    }
+}
@@ -7,6 +7,7 @@ import com.crossover.trial.weather.exception.ErrorCode;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.repository.AirportRepository;
 import com.crossover.trial.weather.repository.AtmosphereRepository;
+import com.crossover.trial.weather.repository.catalogue.AirportCatalogue;
 import com.crossover.trial.weather.repository.factory.RepositoryFactory;
 import com.crossover.trial.weather.service.AirportService;
 import com.crossover.trial.weather.util.ExceptionMatcher;
@@ -15,12 +16,22 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import static com.crossover.trial.weather.common.AirportHelper.calculateDistance;
+import static com.crossover.trial.weather.common.AirportHelper.calculateIntermediatePoint;
 import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
+import static com.crossover.trial.weather.configuration.AppConfig.HOT_RADII;
 import static com.crossover.trial.weather.exception.ErrorCode.WEA_1002;
 
 public class AirportServiceTest {
@@ -35,6 +46,9 @@ public class AirportServiceTest {
     @Rule
     public ExpectedException exception = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void setUp() {
         airportRepository.clear();
@@ -80,6 +94,105 @@ public class AirportServiceTest {
         Assert.assertEquals(realDistance, distance.intValue());
     }
 
+    @Test
+    public void testForEachNearestAirport_visitsNearestFirst() {
+        // airports all over the globe, poles and anti-meridian included
+        Random random = new Random(42);
+        airportRepository.clear();
+        for (int i = 0; i < 500; i++) {
+            String iataCode = "" + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26) + (char) ('A' + i / 676);
+            airportRepository.addAirport(iataCode, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+        }
+        List<Airport> airports = airportRepository.findAll();
+
+        double[][] points = {{0, 0}, {89.9, 10}, {-89.9, -170}, {10, 179.9}, {-45, -179.9}, {51.5, 0.05}};
+        for (double[] point : points) {
+            List<Double> expected = airports.stream()
+                    .map(airport -> calculateDistance(point[0], point[1], airport.getLatitude(), airport.getLongitude()))
+                    .sorted()
+                    .limit(20)
+                    .collect(Collectors.toList());
+
+            List<Double> visited = new ArrayList<>();
+            airportService.forEachNearestAirport(point[0], point[1], (airport, distance) -> {
+                visited.add(distance);
+                return visited.size() < 20;
+            });
+
+            Assert.assertEquals(expected, visited);
+        }
+    }
+
+    @Test
+    public void testForEachNearestAirport_denseRegion_visitsNearestFirst() {
+        // dense enough for the search to stop within a few rings of cells
+        Random random = new Random(11);
+        airportRepository.clear();
+        for (int i = 0; i < 5000; i++) {
+            String iataCode = "" + (char) ('A' + i / 676 % 26) + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+            airportRepository.addAirport(iataCode, random.nextDouble() * 40 + 35, random.nextDouble() * 50 - 10);
+        }
+        List<Airport> airports = airportRepository.findAll();
+
+        double[][] points = {{51.5, 0.05}, {70, 5}, {36, -9.5}, {55.5, 12.5}};
+        for (double[] point : points) {
+            List<Double> expected = airports.stream()
+                    .map(airport -> calculateDistance(point[0], point[1], airport.getLatitude(), airport.getLongitude()))
+                    .sorted()
+                    .limit(50)
+                    .collect(Collectors.toList());
+
+            List<Double> visited = new ArrayList<>();
+            airportService.forEachNearestAirport(point[0], point[1], (airport, distance) -> {
+                visited.add(distance);
+                return visited.size() < 50;
+            });
+
+            Assert.assertEquals(expected, visited);
+        }
+    }
+
+    @Test
+    public void testForEachAirportAlongRoute_matchesSampledRoute() {
+        Random random = new Random(7);
+        airportRepository.clear();
+        for (int i = 0; i < 2000; i++) {
+            String iataCode = "" + (char) ('A' + i / 676 % 26) + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+            airportRepository.addAirport(iataCode, random.nextDouble() * 140 - 70, random.nextDouble() * 360 - 180);
+        }
+        Airport from = airportRepository.addAirport("ZZA", 40.6925, -74.168667);
+        Airport to = airportRepository.addAirport("ZZB", 35.552258, 139.779694);
+        double width = 300;
+
+        // brute force: distance to the route sampled every few KM
+        List<double[]> route = new ArrayList<>();
+        for (int i = 0; i <= 5000; i++) {
+            route.add(calculateIntermediatePoint(from.getLatitude(), from.getLongitude(),
+                    to.getLatitude(), to.getLongitude(), i / 5000.0));
+        }
+
+        Set<String> visited = new HashSet<>();
+        List<Double> routeDistances = new ArrayList<>();
+        airportService.forEachAirportAlongRoute(from, to, width, (airport, alongRoute, offRoute) -> {
+            Assert.assertTrue(visited.add(airport.getIata()));
+            Assert.assertTrue(offRoute <= width);
+        });
+
+        for (Airport airport : airportRepository.findAll()) {
+            double offRoute = route.stream()
+                    .mapToDouble(point -> calculateDistance(point[0], point[1], airport.getLatitude(), airport.getLongitude()))
+                    .min().getAsDouble();
+            // sampling error is below 2km
+            if (offRoute < width - 2) {
+                Assert.assertTrue(airport.getIata(), visited.contains(airport.getIata()));
+            } else if (offRoute > width + 2) {
+                Assert.assertFalse(airport.getIata(), visited.contains(airport.getIata()));
+            }
+        }
+        Assert.assertTrue(visited.contains("ZZA"));
+        Assert.assertTrue(visited.contains("ZZB"));
+    }
+
     @Test
     public void testAddAirport_success() {
         String latitude = "30";
@@ -183,6 +296,18 @@ public class AirportServiceTest {
         airportService.addAirport(iataCode, latitude, longitude);
     }
 
+    @Test
+    public void testAddAirport_duplicateAirportDifferentCase_throwException() {
+        String latitude = "30";
+        String longitude = "50";
+        String iataCode = IATA_CODES[0].toLowerCase();
+
+        exception.expect(WeatherException.class);
+        exception.expect(ExceptionMatcher.hasCode(ErrorCode.WEA_1004));
+
+        airportService.addAirport(iataCode, latitude, longitude);
+    }
+
     @Test
     public void testAddAirport_emptyIataCode_throwException() {
         String latitude = "30";
@@ -224,6 +349,16 @@ public class AirportServiceTest {
         Assert.assertTrue(atmosphere == null);
     }
 
+    @Test
+    public void testGetAirport_ignoreCase() {
+        String lowerCaseCode = IATA_CODES[2].toLowerCase();
+
+        Assert.assertTrue(airportRepository.isExist(lowerCaseCode));
+        Assert.assertEquals(IATA_CODES[2], airportService.getAirport(lowerCaseCode).getIata());
+        Assert.assertTrue(airportService.deleteAirport(lowerCaseCode));
+        Assert.assertFalse(airportRepository.isExist(IATA_CODES[2]));
+    }
+
     @Test
     public void testDelete_notAvailableAirport_throwException() {
         String existingCode = "NotAvailable";
@@ -244,4 +379,114 @@ public class AirportServiceTest {
                 .map(airport -> airport.getIata())
                 .forEach(iata -> Assert.assertTrue(availableIatas.contains(iata)));
     }
+
+    @Test
+    public void testFindAirportsWithinRadius_matchesAllDistances() {
+        Airport newark = airportRepository.findAirport(IATA_CODES[1]);
+
+        // BOS is 322km away from EWR, LCY and STN are around 5594km away
+        assertWithinRadius(newark, 0, IATA_CODES[1]);
+        assertWithinRadius(newark, 321, IATA_CODES[1]);
+        assertWithinRadius(newark, 323, IATA_CODES[0], IATA_CODES[1]);
+        assertWithinRadius(newark, 5594.5, IATA_CODES[0], IATA_CODES[1], IATA_CODES[3]);
+        assertWithinRadius(newark, 20000, IATA_CODES);
+    }
+
+    @Test
+    public void testFindAirportsWithinRadius_acrossAntimeridian() {
+        // Fiji and Samoa airports are on both sides of the 180th meridian, around 1150km apart
+        airportService.addAirport("NAN", "-17.755392", "177.443378");
+        airportService.addAirport("APW", "-13.829969", "-172.008336");
+        Airport nadi = airportRepository.findAirport("NAN");
+        double distance = airportService.calculateDistance(nadi, airportRepository.findAirport("APW"));
+
+        assertWithinRadius(nadi, distance - 1, "NAN");
+        assertWithinRadius(nadi, distance + 1, "NAN", "APW");
+    }
+
+    @Test
+    public void testFindAirportsWithinRadius_aroundPole() {
+        // Alert and Longyearbyen are on opposite sides of the north pole
+        airportService.addAirport("YLT", "82.517778", "-62.280556");
+        airportService.addAirport("LYR", "78.246111", "15.465556");
+        Airport alert = airportRepository.findAirport("YLT");
+        double distance = airportService.calculateDistance(alert, airportRepository.findAirport("LYR"));
+
+        assertWithinRadius(alert, distance - 1, "YLT");
+        assertWithinRadius(alert, distance + 1, "YLT", "LYR");
+    }
+
+    @Test
+    public void testFindAirportsWithinRadius_hotRadii_followUpdates() {
+        // dense enough for every hot radius to hold several airports, with replacements and deletions in between
+        Random random = new Random(7);
+        airportRepository.clear();
+        for (int i = 0; i < 2000; i++) {
+            String iataCode = "" + (char) ('A' + i / 676 % 26) + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+            airportRepository.addAirport(iataCode, random.nextDouble() * 10 + 45, random.nextDouble() * 10 - 5);
+        }
+        for (int i = 0; i < 1500; i += 3) {
+            String iataCode = "" + (char) ('A' + i / 676 % 26) + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+            if (i % 2 == 0) {
+                airportRepository.addAirport(iataCode, random.nextDouble() * 10 + 45, random.nextDouble() * 10 - 5);
+            } else {
+                airportRepository.delete(iataCode);
+            }
+        }
+
+        for (double radius : HOT_RADII) {
+            for (Airport airport : airportRepository.findAll()) {
+                Set<String> expected = airportRepository.findWithinRadius(airport.getLatitude(), airport.getLongitude(),
+                        radius).stream().map(Airport::getIata).collect(Collectors.toSet());
+                Set<String> visited = new HashSet<>();
+                airportService.forEachAirportWithinRadius(airport, radius, neighbour -> visited.add(neighbour.getIata()));
+
+                Assert.assertEquals(expected, airportService.findAirportsWithinRadius(airport, radius).stream()
+                        .map(Airport::getIata).collect(Collectors.toSet()));
+                Assert.assertEquals(expected, visited);
+            }
+        }
+    }
+
+    @Test
+    public void testLoadCatalogue_success() throws Exception {
+        File catalogue = folder.newFile("airports.bin");
+        List<Airport> airports = airportService.getAllAirports();
+        Airport noIata = new Airport();
+        noIata.setLatitude(10);
+        airports.add(noIata);
+        Assert.assertEquals(IATA_CODES.length, AirportCatalogue.write(airports, catalogue));
+
+        airportRepository.clear();
+        Assert.assertEquals(IATA_CODES.length, airportService.loadCatalogue(catalogue));
+
+        Airport boston = airportRepository.findAirport(IATA_CODES[0]);
+        Assert.assertEquals(42.364347, boston.getLatitude(), 0);
+        Assert.assertEquals(-71.005181, boston.getLongitude(), 0);
+        assertWithinRadius(airportRepository.findAirport(IATA_CODES[2]), 100, IATA_CODES[2], IATA_CODES[3]);
+    }
+
+    @Test
+    public void testLoadCatalogue_keepsKnownAirports() throws Exception {
+        File catalogue = folder.newFile("airports.bin");
+        Airport nadi = new Airport();
+        nadi.setIata("NAN");
+        AirportCatalogue.write(Arrays.asList(nadi), catalogue);
+
+        Assert.assertEquals(0, airportService.loadCatalogue(catalogue));
+        Assert.assertNull(airportRepository.findAirport("NAN"));
+    }
+
+    private void assertWithinRadius(Airport center, double radius, String... expectedIataCodes) {
+        Set<String> found = airportService.findAirportsWithinRadius(center, radius).stream()
+                .map(Airport::getIata)
+                .collect(Collectors.toSet());
+        Set<String> bruteForce = airportService.getAllAirports().stream()
+                .filter(airport -> airportService.calculateDistance(center, airport) <= radius)
+                .map(Airport::getIata)
+                .collect(Collectors.toSet());
+
+        Assert.assertEquals(bruteForce, found);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(expectedIataCodes)), found);
+    }
 }
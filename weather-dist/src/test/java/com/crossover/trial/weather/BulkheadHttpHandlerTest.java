@@ -0,0 +1,148 @@
+package com.crossover.trial.weather;
+
+import com.crossover.trial.weather.endpoint.BulkheadHttpHandler;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class BulkheadHttpHandlerTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+
+    private HttpServer server;
+
+    private int port;
+
+    @Before
+    public void setUp() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        // the /slow requests hold their thread until released
+        HttpHandler handler = new HttpHandler() {
+            @Override
+            public void service(Request request, Response response) throws Exception {
+                if (request.getRequestURI().startsWith("/slow")) {
+                    blocked.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                response.getWriter().write(Thread.currentThread().getName());
+            }
+        };
+
+        server = new HttpServer();
+        server.addListener(new NetworkListener("test", "localhost", port));
+        server.getServerConfiguration().addHttpHandler(new BulkheadHttpHandler(handler)
+                .withBulkhead("/slow", 1, 1)
+                .withBulkhead("/fast", 1, 1), "/");
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        clients.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    public void testService_bulkheadBusy_otherBulkheadServed() throws Exception {
+        Future<String> slow = clients.submit(() -> status("/slow"));
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        HttpURLConnection fast = get("/fast");
+        Assert.assertEquals(200, fast.getResponseCode());
+        Assert.assertTrue(read(fast).startsWith("bulkhead-fast-"));
+        Assert.assertFalse(slow.isDone());
+
+        release.countDown();
+        Assert.assertEquals("200", slow.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testService_bulkheadFull_rejectedWithRetryAfter() throws Exception {
+        Future<String> running = clients.submit(() -> status("/slow"));
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        // the thread of the bulkhead is busy and its queue holds one request, the others are refused at once
+        List<Future<String>> waiting = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            waiting.add(clients.submit(() -> status("/slow")));
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (waiting.stream().filter(Future::isDone).count() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, waiting.stream().filter(Future::isDone).count());
+        Assert.assertFalse(running.isDone());
+
+        release.countDown();
+        List<String> statuses = new ArrayList<>();
+        for (Future<String> request : waiting) {
+            statuses.add(request.get(5, TimeUnit.SECONDS));
+        }
+        Collections.sort(statuses);
+        Assert.assertEquals(Arrays.asList("200", "503 retry after 1", "503 retry after 1"), statuses);
+        Assert.assertEquals("200", running.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testService_pathPrefixedBeyondSegment_notInBulkhead() throws Exception {
+        HttpURLConnection exact = get("/fast");
+        Assert.assertTrue(read(exact).startsWith("bulkhead-fast-"));
+
+        HttpURLConnection under = get("/fast/ping");
+        Assert.assertTrue(read(under).startsWith("bulkhead-fast-"));
+
+        // /fastest only shares characters with /fast, it stays on the Grizzly worker threads
+        HttpURLConnection other = get("/fastest");
+        Assert.assertEquals(200, other.getResponseCode());
+        Assert.assertFalse(read(other).startsWith("bulkhead-"));
+    }
+
+    /**
+     * @return the status of a GET of the path, with its Retry-After header if refused
+     */
+    private String status(String path) throws IOException {
+        HttpURLConnection connection = get(path);
+        int status = connection.getResponseCode();
+        return status == 503 ? status + " retry after " + connection.getHeaderField("Retry-After")
+                : String.valueOf(status);
+    }
+
+    private HttpURLConnection get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setReadTimeout(10000);
+        return connection;
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        Scanner scanner = new Scanner(connection.getInputStream(), "UTF-8").useDelimiter("\\A");
+        return scanner.hasNext() ? scanner.next() : "";
+    }
+}
@@ -0,0 +1,65 @@
+package com.crossover.trial.weather;
+
+import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointSample;
+import com.crossover.trial.weather.repository.history.DataPointRollup;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class DataPointRollupTest {
+
+    @Test
+    public void testFind_spanGrowingPastBucketCount_keepsLatestBuckets() {
+        DataPointRollup rollup = new DataPointRollup(10, 50);
+        for (int time = 0; time < 1000; time += 5) {
+            rollup.add(time, newDataPoint(time / 10));
+        }
+
+        List<DataPointSample> samples = rollup.find(0, Long.MAX_VALUE);
+
+        Assert.assertEquals(50, samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            Assert.assertEquals((50 + i) * 10, samples.get(i).getTime());
+            Assert.assertEquals(50 + i, samples.get(i).getDataPoint().getMean(), 1e-9);
+            Assert.assertEquals(2, samples.get(i).getDataPoint().getCount());
+        }
+    }
+
+    @Test
+    public void testAdd_outOfOrder_mergedIntoTheirBuckets() {
+        DataPointRollup rollup = new DataPointRollup(10, 50);
+        rollup.add(105, newDataPoint(10));
+        rollup.add(5, newDataPoint(0));
+        rollup.add(101, newDataPoint(20));
+        // grows the ring, the buckets already held are kept
+        rollup.add(400, newDataPoint(40));
+        rollup.add(15, newDataPoint(1));
+
+        List<DataPointSample> samples = rollup.find(0, Long.MAX_VALUE);
+
+        Assert.assertEquals(4, samples.size());
+        Assert.assertEquals(0, samples.get(0).getTime());
+        Assert.assertEquals(10, samples.get(1).getTime());
+        Assert.assertEquals(100, samples.get(2).getTime());
+        Assert.assertEquals(15, samples.get(2).getDataPoint().getMean(), 1e-9);
+        Assert.assertEquals(2, samples.get(2).getDataPoint().getCount());
+        Assert.assertEquals(400, samples.get(3).getTime());
+
+        // older than the kept buckets
+        rollup.add(1000, newDataPoint(100));
+        rollup.add(15, newDataPoint(1));
+        Assert.assertEquals(1, rollup.find(0, Long.MAX_VALUE).size());
+    }
+
+    private static DataPoint newDataPoint(double mean) {
+        return new DataPoint.Builder()
+                .withFirst(1)
+                .withMedian(2)
+                .withMean(mean)
+                .withLast(3)
+                .withCount(1)
+                .build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.crossover.trial.weather;
+
+import com.crossover.trial.weather.common.DataPointType;
+import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.service.IngestQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IngestQueueTest {
+
+    private Map<String, List<Integer>> applied = Collections.synchronizedMap(new HashMap<>());
+
+    @Test
+    public void testOffer_appliesUpdatesOfAnAirportInOrder() {
+        IngestQueue queue = new IngestQueue(10000, 4, 50, (iataCode, updates) -> {
+            List<Integer> counts = applied.computeIfAbsent(iataCode, key -> new ArrayList<>());
+            updates.forEach(update -> counts.add(update.getDataPoint().getCount()));
+        });
+
+        String[] iataCodes = {"BOS", "EWR", "JFK", "LGA", "MMU"};
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(queue.offer(iataCodes[i % iataCodes.length], DataPointType.WIND, newDataPoint(i)));
+        }
+        queue.close();
+
+        Assert.assertEquals(iataCodes.length, applied.size());
+        for (int i = 0; i < iataCodes.length; i++) {
+            List<Integer> counts = applied.get(iataCodes[i]);
+            Assert.assertEquals(200, counts.size());
+            for (int j = 0; j < counts.size(); j++) {
+                Assert.assertEquals(i + j * iataCodes.length, (int) counts.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void testOffer_full_refusesUpdates() throws Exception {
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IngestQueue queue = new IngestQueue(3, 1, 10, (iataCode, updates) -> {
+            applying.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            applied.computeIfAbsent(iataCode, key -> new ArrayList<>()).add(updates.size());
+        });
+
+        // the applier holds the first update while the next ones fill the queue
+        Assert.assertTrue(queue.offer("BOS", DataPointType.WIND, newDataPoint(1)));
+        applying.await();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(queue.offer("BOS", DataPointType.WIND, newDataPoint(1)));
+        }
+        Assert.assertFalse(queue.offer("BOS", DataPointType.WIND, newDataPoint(1)));
+        Assert.assertEquals(3, queue.size());
+
+        release.countDown();
+        queue.close();
+
+        Assert.assertEquals(Arrays.asList(1, 3), applied.get("BOS"));
+        Assert.assertFalse(queue.offer("BOS", DataPointType.WIND, newDataPoint(1)));
+    }
+
+    @Test
+    public void testClose_concurrentOffers_acceptedUpdatesApplied() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            AtomicInteger appliedCount = new AtomicInteger();
+            IngestQueue queue = new IngestQueue(100000, 2, 50,
+                    (iataCode, updates) -> appliedCount.addAndGet(updates.size()));
+            AtomicInteger acceptedCount = new AtomicInteger();
+            CountDownLatch offering = new CountDownLatch(4);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+
+            for (int thread = 0; thread < 4; thread++) {
+                executor.execute(() -> {
+                    offering.countDown();
+                    while (queue.offer("BOS", DataPointType.WIND, newDataPoint(1))) {
+                        acceptedCount.incrementAndGet();
+                    }
+                });
+            }
+            offering.await();
+            queue.close();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            // an update accepted while the queue was closing is applied, not dropped
+            Assert.assertEquals(acceptedCount.get(), appliedCount.get());
+        }
+    }
+
+    private static DataPoint newDataPoint(int count) {
+        return new DataPoint.Builder().withCount(count).withFirst(1).withMedian(2).withLast(3).withMean(2).build();
+    }
+}
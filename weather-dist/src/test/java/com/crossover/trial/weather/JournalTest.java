@@ -0,0 +1,135 @@
+package com.crossover.trial.weather;
+
+import com.crossover.trial.weather.repository.journal.Journal;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class JournalTest {
+    private static final Journal.Codec<String> CODEC = new Journal.Codec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(String key, byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, String> recovered = new HashMap<>();
+
+    @Test
+    public void testRecover_replaysChangesInOrder() {
+        Journal<String> journal = open(1000);
+        journal.put("BOS", "1");
+        journal.put("JFK", "2");
+        journal.clear();
+        journal.put("EWR", "3");
+        journal.put("LGA", "4");
+        journal.put("EWR", "5");
+        journal.awaitDurable(journal.delete("LGA"));
+        journal.close();
+
+        open(1000).close();
+
+        Assert.assertEquals(1, recovered.size());
+        Assert.assertEquals("5", recovered.get("EWR"));
+    }
+
+    @Test
+    public void testRecover_afterCompaction() {
+        Map<String, String> expected = new HashMap<>();
+        Journal<String> journal = open(10);
+        for (int i = 0; i < 100; i++) {
+            journal.awaitDurable(journal.put("K" + (i % 30), String.valueOf(i)));
+            expected.put("K" + (i % 30), String.valueOf(i));
+        }
+        journal.awaitDurable(journal.delete("K0"));
+        expected.remove("K0");
+        journal.close();
+
+        Assert.assertTrue(countFiles(".snapshot") > 0);
+        Assert.assertTrue(countFiles(".journal") < 10);
+
+        open(10).close();
+
+        Assert.assertEquals(expected, recovered);
+    }
+
+    @Test
+    public void testRecover_ignoresTornRecord() throws Exception {
+        Journal<String> journal = open(1000);
+        journal.put("BOS", "1");
+        journal.awaitDurable(journal.put("JFK", "2"));
+        journal.close();
+
+        // a crash in the middle of a record leaves a partial header
+        try (FileOutputStream out = new FileOutputStream(new File(folder.getRoot(), "test-0.journal"), true)) {
+            out.write(new byte[]{0, 0, 1});
+        }
+
+        journal = open(1000);
+        journal.awaitDurable(journal.put("EWR", "3"));
+        journal.close();
+
+        recovered.clear();
+        open(1000).close();
+
+        Assert.assertEquals(3, recovered.size());
+        Assert.assertEquals("2", recovered.get("JFK"));
+        Assert.assertEquals("3", recovered.get("EWR"));
+    }
+
+    @Test
+    public void testRecover_corruptLength_truncatedAtBadRecord() throws Exception {
+        Journal<String> journal = open(1000);
+        journal.awaitDurable(journal.put("BOS", "1"));
+        journal.close();
+
+        // a header announcing nearly 2 GB, followed by a few bytes only
+        try (FileOutputStream out = new FileOutputStream(new File(folder.getRoot(), "test-0.journal"), true)) {
+            out.write(new byte[]{0x7f, (byte) 0xff, (byte) 0xff, 0, 0, 0, 0, 0, 1, 2, 3});
+        }
+
+        recovered.clear();
+        open(1000).close();
+
+        Assert.assertEquals(1, recovered.size());
+        Assert.assertEquals("1", recovered.get("BOS"));
+    }
+
+    private Journal<String> open(int compactionThreshold) {
+        return new Journal<>(folder.getRoot(), "test", CODEC, compactionThreshold, new Journal.Listener<String>() {
+            @Override
+            public void put(String key, String value) {
+                recovered.put(key, value);
+            }
+
+            @Override
+            public void delete(String key) {
+                recovered.remove(key);
+            }
+
+            @Override
+            public void clear() {
+                recovered.clear();
+            }
+        });
+    }
+
+    private int countFiles(String suffix) {
+        return folder.getRoot().list((directory, name) -> name.endsWith(suffix)).length;
+    }
+}
@@ -0,0 +1,57 @@
+package com.crossover.trial.weather;
+
+import com.crossover.trial.weather.repository.RecentUpdateCounter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class RecentUpdateCounterTest {
+
+    @Test
+    public void testCount_slidingWindow() {
+        RecentUpdateCounter counter = new RecentUpdateCounter(1000, 10);
+        counter.add(50);
+        counter.add(150);
+        counter.add(950);
+        counter.remove(150);
+
+        Assert.assertEquals(2, counter.count(999));
+        // the bucket of time 50 leaves the window, then the slot is recycled for time 1050
+        Assert.assertEquals(1, counter.count(1000));
+        counter.add(1050);
+        Assert.assertEquals(2, counter.count(1099));
+    }
+
+    @Test
+    public void testAdd_concurrentUpdates_noLostCount() throws InterruptedException {
+        RecentUpdateCounter counter = new RecentUpdateCounter(TimeUnit.DAYS.toMillis(1), 24 * 60);
+        long now = System.currentTimeMillis();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 10000; i++) {
+                    counter.add(now - i * 1000L);
+                    if (i % 2 == 0) {
+                        counter.remove(now - i * 1000L);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(8 * 5000, counter.count(now));
+    }
+}
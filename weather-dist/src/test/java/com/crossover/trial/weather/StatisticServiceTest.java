@@ -7,7 +7,12 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
+import static com.crossover.trial.weather.configuration.AppConfig.RADIUS_HISTOGRAM_BUCKETS;
 
 public class StatisticServiceTest {
     private static final String[] IATA_CODES = new String[]{"BOS", "EWR", "LCY", "STN"};
@@ -61,6 +66,44 @@ public class StatisticServiceTest {
         Assert.assertEquals(range[RADIUS[2].intValue()], 1);
     }
 
+    @Test
+    public void testComputeRadiusFrequency_hugeRadiusGoesToOverflowBucket() {
+        prepareFrequencies();
+        frequencyRepository.update(IATA_CODES[0], 1e9);
+        frequencyRepository.update(IATA_CODES[0], Double.POSITIVE_INFINITY);
+
+        int[] range = statisticService.computeRadiusFrequencies();
+
+        // regular buckets followed by the overflow bucket
+        Assert.assertEquals(RADIUS_HISTOGRAM_BUCKETS + 1, range.length);
+        Assert.assertEquals(2, range[RADIUS_HISTOGRAM_BUCKETS]);
+        Assert.assertEquals(1, range[RADIUS[2].intValue()]);
+    }
+
+    @Test
+    public void testUpdateFrequencies_concurrentRequests() throws InterruptedException {
+        int threads = 8;
+        int requestsPerThread = 10000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            String iata = IATA_CODES[i % IATA_CODES.length];
+            executor.execute(() -> {
+                for (int j = 0; j < requestsPerThread; j++) {
+                    statisticService.updateFrequencies(iata, RADIUS[0]);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assert.assertEquals(threads * requestsPerThread, frequencyRepository.getTotalRequest());
+        Assert.assertEquals(threads / IATA_CODES.length * requestsPerThread,
+                frequencyRepository.getRequestFrequency(IATA_CODES[0], 0));
+        Assert.assertEquals(threads * requestsPerThread,
+                statisticService.computeRadiusFrequencies()[RADIUS[0].intValue()]);
+    }
+
     private void prepareFrequencies() {
         frequencyRepository.update(IATA_CODES[0], RADIUS[0]);
         frequencyRepository.update(IATA_CODES[1], RADIUS[1]);
@@ -1,25 +1,58 @@
 package com.crossover.trial.weather;
 
 import com.crossover.trial.weather.configuration.AppConfig;
+import com.crossover.trial.weather.endpoint.AtmosphericInformationListWriter;
 import com.crossover.trial.weather.endpoint.WeatherCollectorEndpointImpl;
 import com.crossover.trial.weather.endpoint.WeatherQueryEndpointImpl;
 import com.crossover.trial.weather.entity.AtmosphericInformation;
+import com.crossover.trial.weather.entity.AtmosphericInformationList;
 import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointRecord;
+import com.crossover.trial.weather.entity.DataPointResult;
+import com.crossover.trial.weather.entity.DataPointStreamResult;
+import com.crossover.trial.weather.exception.ErrorCode;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.repository.AirportRepository;
 import com.crossover.trial.weather.repository.AtmosphereRepository;
 import com.crossover.trial.weather.repository.FrequencyRepository;
 import com.crossover.trial.weather.repository.factory.RepositoryFactory;
+import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.lang.annotation.Annotation;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 public class WeatherEndpointTest {
 
@@ -79,10 +112,12 @@ public class WeatherEndpointTest {
     public void testGetNearby() throws Exception {
         // check datasize response
         _update.updateWeather("JFK", "wind", _gson.toJson(_dp));
-        _dp.setMean(40);
-        _update.updateWeather("EWR", "wind", _gson.toJson(_dp));
-        _dp.setMean(30);
-        _update.updateWeather("LGA", "wind", _gson.toJson(_dp));
+        DataPoint ewrDp = new DataPoint.Builder()
+                .withCount(10).withFirst(10).withMedian(20).withLast(30).withMean(40).build();
+        _update.updateWeather("EWR", "wind", _gson.toJson(ewrDp));
+        DataPoint lgaDp = new DataPoint.Builder()
+                .withCount(10).withFirst(10).withMedian(20).withLast(30).withMean(30).build();
+        _update.updateWeather("LGA", "wind", _gson.toJson(lgaDp));
 
         List<AtmosphericInformation> ais = (List<AtmosphericInformation>) _query.weather("JFK", "200").getEntity();
         assertEquals(3, ais.size());
@@ -109,4 +144,199 @@ public class WeatherEndpointTest {
         assertEquals(ais.get(0).getCloudCover(), cloudCoverDp);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testGetNearby_writesCachedJson() throws Exception {
+        _update.updateWeather("JFK", "wind", _gson.toJson(_dp));
+        DataPoint ewrDp = new DataPoint.Builder()
+                .withCount(10).withFirst(10).withMedian(20).withLast(30).withMean(40).build();
+        _update.updateWeather("EWR", "wind", _gson.toJson(ewrDp));
+
+        AtmosphericInformation[] ais = readWeather("JFK", "200");
+        assertEquals(2, ais.length);
+        Arrays.sort(ais, (a1, a2) -> Double.compare(a1.getWind().getMean(), a2.getWind().getMean()));
+        assertEquals(_dp, ais[0].getWind());
+        assertEquals(ewrDp, ais[1].getWind());
+
+        // the update publishes a new snapshot, the json served for the airport follows
+        _update.updateWeather("JFK", "wind", _gson.toJson(ewrDp));
+        ais = readWeather("JFK", "0");
+        assertEquals(1, ais.length);
+        assertEquals(ewrDp, ais[0].getWind());
+    }
+
+    private AtmosphericInformation[] readWeather(String iata, String radius) throws Exception {
+        AtmosphericInformationList weather = (AtmosphericInformationList) _query.weather(iata, radius).getEntity();
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        new AtmosphericInformationListWriter().writeTo(weather, AtmosphericInformationList.class, null, null,
+                MediaType.APPLICATION_JSON_TYPE, null, json);
+        return _gson.fromJson(new String(json.toByteArray(), StandardCharsets.UTF_8), AtmosphericInformation[].class);
+    }
+
+    @Test
+    public void testGetWeather_servedJson_sameAsJacksonList() throws Exception {
+        _update.updateWeather("JFK", "temperature", _gson.toJson(_dp));
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        HttpServer server = GrizzlyHttpServerFactory.createHttpServer(URI.create("http://localhost:" + port + "/"),
+                new AppConfig());
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port
+                    + "/query/weather/JFK/200").openConnection();
+            assertEquals(200, connection.getResponseCode());
+            String served = new Scanner(connection.getInputStream(), "UTF-8").useDelimiter("\\A").next();
+
+            // the json jersey wrote with its jackson provider before the snapshots cached their own
+            List<AtmosphericInformation> weather =
+                    new ArrayList<>((AtmosphericInformationList) _query.weather("JFK", "200").getEntity());
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new JacksonJaxbJsonProvider().writeTo(weather, ArrayList.class, ArrayList.class, new Annotation[0],
+                    MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), expected);
+
+            assertEquals(new JsonParser().parse(new String(expected.toByteArray(), StandardCharsets.UTF_8)),
+                    new JsonParser().parse(served));
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testUpdateBatch() throws Exception {
+        DataPoint humidityDp = new DataPoint.Builder()
+                .withCount(5).withFirst(20).withMedian(40).withLast(60).withMean(45).build();
+        List<DataPointRecord> records = Arrays.asList(
+                new DataPointRecord("JFK", "wind", _dp),
+                new DataPointRecord("JFK", "humidity", humidityDp),
+                new DataPointRecord("XXX", "wind", _dp),
+                new DataPointRecord("EWR", "snow", _dp));
+
+        List<DataPointResult> results =
+                (List<DataPointResult>) _update.updateWeatherBatch(_gson.toJson(records)).getEntity();
+
+        assertEquals(4, results.size());
+        assertEquals(200, results.get(0).getStatus());
+        assertEquals(200, results.get(1).getStatus());
+        assertEquals(404, results.get(2).getStatus());
+        assertEquals(400, results.get(3).getStatus());
+
+        List<AtmosphericInformation> ais = (List<AtmosphericInformation>) _query.weather("JFK", "0").getEntity();
+        assertEquals(ais.get(0).getWind(), _dp);
+        assertEquals(ais.get(0).getHumidity(), humidityDp);
+    }
+
+    @Test
+    public void testUpdateStream() throws Exception {
+        DataPoint humidityDp = new DataPoint.Builder()
+                .withCount(5).withFirst(20).withMedian(40).withLast(60).withMean(45).build();
+        String stream = _gson.toJson(new DataPointRecord("JFK", "wind", _dp)) + "\n"
+                + _gson.toJson(new DataPointRecord("XXX", "wind", _dp)) + "\n"
+                + "\n"
+                + _gson.toJson(new DataPointRecord("JFK", "humidity", humidityDp)) + "\r\n"
+                + _gson.toJson(new DataPointRecord("EWR", "snow", _dp)) + "\n";
+
+        DataPointStreamResult result = (DataPointStreamResult) _update.updateWeatherStream(
+                new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8))).getEntity();
+
+        assertEquals(4, result.getReceived());
+        assertEquals(2, result.getApplied());
+        assertEquals(2, result.getRejected());
+        assertEquals(404, result.getRejections().get(0).getStatus());
+        assertEquals(400, result.getRejections().get(1).getStatus());
+        assertNull(result.getError());
+
+        List<AtmosphericInformation> ais = (List<AtmosphericInformation>) _query.weather("JFK", "0").getEntity();
+        assertEquals(ais.get(0).getWind(), _dp);
+        assertEquals(ais.get(0).getHumidity(), humidityDp);
+    }
+
+    @Test
+    public void testUpdateStream_empty_nothingReceived() throws Exception {
+        for (String stream : new String[]{"", "\n\r\n"}) {
+            DataPointStreamResult result = (DataPointStreamResult) _update.updateWeatherStream(
+                    new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8))).getEntity();
+
+            assertEquals(0, result.getReceived());
+            assertEquals(0, result.getApplied());
+            assertNull(result.getError());
+        }
+    }
+
+    @Test
+    public void testUpdateStream_invalidJson_keepsRecordsBefore() throws Exception {
+        String stream = _gson.toJson(new DataPointRecord("JFK", "wind", _dp)) + "\n"
+                + "{\"iata\": \"EWR\", \"pointType\": }\n"
+                + _gson.toJson(new DataPointRecord("EWR", "wind", _dp)) + "\n";
+
+        DataPointStreamResult result = (DataPointStreamResult) _update.updateWeatherStream(
+                new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8))).getEntity();
+
+        assertEquals(1, result.getReceived());
+        assertEquals(1, result.getApplied());
+        assertNotNull(result.getError());
+
+        assertEquals(_dp, ((List<AtmosphericInformation>) _query.weather("JFK", "0").getEntity()).get(0).getWind());
+        assertEquals(0, ((List<AtmosphericInformation>) _query.weather("EWR", "0").getEntity()).size());
+    }
+
+    @Test
+    public void testUpdateStream_openStream_recordsAppliedBeforeClose() throws Exception {
+        PipedOutputStream collector = new PipedOutputStream();
+        PipedInputStream stream = new PipedInputStream(collector);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Response> response = executor.submit(() -> _update.updateWeatherStream(stream));
+
+        collector.write((_gson.toJson(new DataPointRecord("JFK", "wind", _dp)) + "\n").getBytes(StandardCharsets.UTF_8));
+        collector.flush();
+
+        // applied while the collection site keeps the stream open
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (atmosphereRepository.find("JFK") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(atmosphereRepository.find("JFK"));
+        assertEquals(_dp, atmosphereRepository.find("JFK").getWind());
+        assertFalse(response.isDone());
+
+        collector.close();
+        DataPointStreamResult result = (DataPointStreamResult) response.get(5, TimeUnit.SECONDS).getEntity();
+        executor.shutdown();
+
+        assertEquals(1, result.getReceived());
+        assertEquals(1, result.getApplied());
+    }
+
+    @Test
+    public void testGetWeather_invalidRadius_rejected() throws Exception {
+        for (String radius : Arrays.asList("abc", "NaN", "-1")) {
+            assertInvalid(() -> _query.weather("BOS", radius));
+            assertInvalid(() -> _query.summary("BOS", radius));
+        }
+    }
+
+    @Test
+    public void testGetPositionWeather_invalidRadiusOrPosition_rejected() throws Exception {
+        for (String radius : Arrays.asList("abc", "NaN", "-1")) {
+            assertInvalid(() -> _query.position("42.36", "-71.00", radius));
+        }
+        assertInvalid(() -> _query.position("NaN", "-71.00", "100"));
+        assertInvalid(() -> _query.position("42.36", "NaN", "100"));
+    }
+
+    @Test
+    public void testGetCorridorWeather_invalidWidth_rejected() throws Exception {
+        for (String width : Arrays.asList("abc", "NaN", "-1")) {
+            assertInvalid(() -> _query.corridor("BOS", "JFK", width));
+        }
+    }
+
+    private static void assertInvalid(Runnable query) {
+        try {
+            query.run();
+            fail("the query should be rejected");
+        } catch (WeatherException e) {
+            assertEquals(ErrorCode.WEA_1003, e.getErrorCode());
+        }
+    }
+}
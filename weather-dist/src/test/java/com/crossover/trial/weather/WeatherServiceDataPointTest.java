@@ -1,11 +1,20 @@
 package com.crossover.trial.weather;
 
+import com.crossover.trial.weather.common.HistoryResolution;
+import com.crossover.trial.weather.common.JSONHelper;
 import com.crossover.trial.weather.entity.AtmosphericInformation;
 import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.DataPointRecord;
+import com.crossover.trial.weather.entity.DataPointResult;
+import com.crossover.trial.weather.entity.DataPointSample;
+import com.crossover.trial.weather.entity.DataPointStreamResult;
+import com.crossover.trial.weather.exception.GlobalExceptionHandler;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.repository.AirportRepository;
 import com.crossover.trial.weather.repository.AtmosphereRepository;
+import com.crossover.trial.weather.repository.HistoryRepository;
 import com.crossover.trial.weather.repository.factory.RepositoryFactory;
+import com.crossover.trial.weather.service.AirportService;
 import com.crossover.trial.weather.service.WeatherService;
 import org.junit.Assert;
 import org.junit.Before;
@@ -13,9 +22,26 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import javax.ws.rs.core.Response;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
 import static com.crossover.trial.weather.common.DataPointType.*;
 import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
+import static com.crossover.trial.weather.configuration.AppConfig.HISTORY_CAPACITY;
 import static com.crossover.trial.weather.exception.ErrorCode.WEA_1001;
+import static com.crossover.trial.weather.exception.ErrorCode.WEA_1003;
+import static com.crossover.trial.weather.exception.ErrorCode.WEA_1006;
 import static com.crossover.trial.weather.util.ExceptionMatcher.hasCode;
 
 public class WeatherServiceDataPointTest {
@@ -27,6 +53,8 @@ public class WeatherServiceDataPointTest {
 
     private AtmosphereRepository atmosphereRepository = RepositoryFactory.getAtmosphereRepository(CURRENT_REPOSITORY_TYPE);
 
+    private HistoryRepository historyRepository = RepositoryFactory.getHistoryRepository(CURRENT_REPOSITORY_TYPE);
+
     @Rule
     public ExpectedException exception = ExpectedException.none();
 
@@ -37,6 +65,7 @@ public class WeatherServiceDataPointTest {
     public void setUp() {
         airportRepository.clear();
         atmosphereRepository.clear();
+        historyRepository.clear();
 
         airportRepository.addAirport(IATA, 123, 345);
     }
@@ -143,6 +172,407 @@ public class WeatherServiceDataPointTest {
         weatherService.addDataPoint(IATA, "NOTYPE", dataPoint);
     }
 
+    @Test
+    public void testAddDataPoint_publishesNewSnapshot() {
+        DataPoint wind = newDataPoint(3, 7, 5.33, 10, 20);
+        DataPoint temperature = newDataPoint(1, 2, 1.5, 3, 10);
+
+        weatherService.addDataPoint(IATA, WIND.toString(), wind);
+        AtmosphericInformation first = atmosphereRepository.find(IATA);
+        weatherService.addDataPoint(IATA, TEMPERATURE.toString(), temperature);
+        AtmosphericInformation second = atmosphereRepository.find(IATA);
+
+        // the snapshot read before the second update is left untouched
+        Assert.assertNull(first.getTemperature());
+        Assert.assertEquals(wind, second.getWind());
+        Assert.assertEquals(temperature, second.getTemperature());
+        Assert.assertEquals(first.getVersion() + 1, second.getVersion());
+    }
+
+    @Test
+    public void testAddDataPoints_sameAirport_mergedIntoOneSnapshot() {
+        DataPoint firstWind = newDataPoint(3, 7, 5.33, 10, 20);
+        DataPoint secondWind = newDataPoint(4, 8, 6.33, 11, 20);
+        DataPoint temperature = newDataPoint(1, 2, 1.5, 3, 10);
+
+        List<DataPointResult> results = weatherService.addDataPoints(Arrays.asList(
+                new DataPointRecord(IATA, WIND.toString(), firstWind),
+                new DataPointRecord(IATA, TEMPERATURE.toString(), temperature),
+                new DataPointRecord(IATA, "NOTYPE", temperature),
+                new DataPointRecord(IATA, WIND.toString(), secondWind)));
+        AtmosphericInformation information = atmosphereRepository.find(IATA);
+
+        Assert.assertEquals(Arrays.asList(200, 200, 400, 200),
+                results.stream().map(DataPointResult::getStatus).collect(Collectors.toList()));
+        Assert.assertEquals(secondWind, information.getWind());
+        Assert.assertEquals(temperature, information.getTemperature());
+        Assert.assertEquals(3, information.getVersion());
+
+        // every data point is kept in the history, not only the last one of its type
+        List<DataPointSample> winds = weatherService.getHistory(IATA, WIND.toString(), null, 0, Long.MAX_VALUE);
+        Assert.assertEquals(2, winds.size());
+    }
+
+    @Test
+    public void testAddDataPoint_concurrentTypes_noLostUpdate() throws InterruptedException {
+        DataPoint dataPoint = newDataPoint(3, 7, 5.33, 10, 20);
+        String[] pointTypes = new String[]{WIND.toString(), TEMPERATURE.toString(), HUMIDITY.toString(),
+                CLOUD_COVER.toString(), PRECIPITATION.toString()};
+
+        for (int round = 0; round < 100; round++) {
+            atmosphereRepository.clear();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(pointTypes.length);
+
+            for (String pointType : pointTypes) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        weatherService.addDataPoint(IATA, pointType, dataPoint);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            AtmosphericInformation information = atmosphereRepository.find(IATA);
+            Assert.assertEquals(dataPoint, information.getWind());
+            Assert.assertEquals(dataPoint, information.getTemperature());
+            Assert.assertEquals(dataPoint, information.getHumidity());
+            Assert.assertEquals(dataPoint, information.getCloudCover());
+            Assert.assertEquals(dataPoint, information.getPrecipitation());
+        }
+    }
+
+    @Test
+    public void testAddDataPoint_concurrentClear_recentUpdatesFollowWeather() throws InterruptedException {
+        for (int round = 0; round < 100; round++) {
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 20; i++) {
+                        weatherService.addDataPoint(IATA, WIND.toString(), newDataPoint(3, 7, 5.33, 10, i));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    atmosphereRepository.clear();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            start.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            Assert.assertEquals(atmosphereRepository.find(IATA) == null ? 0 : 1,
+                    atmosphereRepository.countRecentlyUpdated());
+            atmosphereRepository.clear();
+            Assert.assertEquals(0, atmosphereRepository.countRecentlyUpdated());
+        }
+    }
+
+    @Test
+    public void testAddDataPoints_airportDeletedBeforeWrite_groupRejected() throws Exception {
+        airportRepository.addAirport("TWO", 12, 34);
+        DataPoint dataPoint = newDataPoint(3, 7, 5.33, 10, 20);
+        // the airport is deleted once its records are validated, when the batch is written
+        RecordingAtmosphereRepository repository = new RecordingAtmosphereRepository(iataCode -> {
+            if (iataCode.equals("TWO")) {
+                airportRepository.delete("TWO");
+            }
+        });
+
+        List<DataPointResult> results = new WeatherService(repository, 0).addDataPoints(Arrays.asList(
+                new DataPointRecord(IATA, WIND.toString(), dataPoint),
+                new DataPointRecord("TWO", WIND.toString(), dataPoint),
+                new DataPointRecord(IATA, TEMPERATURE.toString(), dataPoint),
+                new DataPointRecord("TWO", HUMIDITY.toString(), dataPoint)));
+
+        Assert.assertEquals(Arrays.asList(200, 404, 200, 404),
+                results.stream().map(DataPointResult::getStatus).collect(Collectors.toList()));
+        Assert.assertEquals(1, (int) repository.updates.get("TWO"));
+        Assert.assertNull(atmosphereRepository.find("TWO"));
+        Assert.assertTrue(historyRepository.find("TWO", WIND, HistoryResolution.RAW, 0, Long.MAX_VALUE).isEmpty());
+        Assert.assertEquals(dataPoint, atmosphereRepository.find(IATA).getTemperature());
+    }
+
+    @Test
+    public void testAddDataPointsStream_recordsInOneChunk_oneWritePerAirport() throws Exception {
+        airportRepository.addAirport("TWO", 12, 34);
+        DataPoint dataPoint = newDataPoint(3, 7, 5.33, 10, 20);
+        StringBuilder records = new StringBuilder();
+        for (String pointType : new String[]{WIND.toString(), TEMPERATURE.toString(), HUMIDITY.toString()}) {
+            records.append(JSONHelper.toJson(new DataPointRecord(IATA, pointType, dataPoint))).append('\n');
+            records.append(JSONHelper.toJson(new DataPointRecord("TWO", pointType, dataPoint))).append('\n');
+        }
+        RecordingAtmosphereRepository repository = new RecordingAtmosphereRepository(iataCode -> {
+        });
+
+        // the whole chunk is received at once, the stream having nothing more ready once it is read
+        Reader stream = new Reader() {
+            private boolean received;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (received) {
+                    return -1;
+                }
+                received = true;
+                records.getChars(0, records.length(), buffer, offset);
+                return records.length();
+            }
+
+            @Override
+            public boolean ready() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        DataPointStreamResult result = new WeatherService(repository, 0).addDataPoints(stream);
+
+        Assert.assertEquals(6, result.getApplied());
+        Assert.assertEquals(1, (int) repository.updates.get(IATA));
+        Assert.assertEquals(1, (int) repository.updates.get("TWO"));
+        Assert.assertEquals(dataPoint, atmosphereRepository.find("TWO").getHumidity());
+    }
+
+    @Test
+    public void testAddDataPoints_asyncIngest_acceptedThenAppliedOnStop() throws Exception {
+        DataPoint dataPoint = newDataPoint(3, 7, 5.33, 10, 20);
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // the applier holds the first data point until released
+        WeatherService asyncService = new WeatherService(new RecordingAtmosphereRepository(iataCode -> {
+            applying.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }), 1);
+
+        Assert.assertFalse(asyncService.submitDataPoint(IATA, WIND.toString(), dataPoint));
+        Assert.assertTrue(applying.await(5, TimeUnit.SECONDS));
+        List<DataPointResult> results = asyncService.addDataPoints(Arrays.asList(
+                new DataPointRecord(IATA, TEMPERATURE.toString(), dataPoint),
+                new DataPointRecord(IATA, HUMIDITY.toString(), dataPoint)));
+
+        // the shard of the airport holds a single data point, the next one is refused until the queue drains
+        Assert.assertEquals(Arrays.asList(202, 503),
+                results.stream().map(DataPointResult::getStatus).collect(Collectors.toList()));
+        try {
+            asyncService.submitDataPoint(IATA, HUMIDITY.toString(), dataPoint);
+            Assert.fail("the queue should be full");
+        } catch (WeatherException e) {
+            Assert.assertEquals(WEA_1006, e.getErrorCode());
+            Response response = new GlobalExceptionHandler().toResponse(e);
+            Assert.assertEquals(503, response.getStatus());
+            Assert.assertEquals(GlobalExceptionHandler.RETRY_AFTER, response.getHeaders().getFirst("Retry-After"));
+        }
+        Assert.assertNull(atmosphereRepository.find(IATA));
+
+        release.countDown();
+        asyncService.stopIngest();
+        AtmosphericInformation information = atmosphereRepository.find(IATA);
+        Assert.assertEquals(dataPoint, information.getWind());
+        Assert.assertEquals(dataPoint, information.getTemperature());
+        Assert.assertNull(information.getHumidity());
+    }
+
+    @Test
+    public void testGetHistory_latestSamplesOldestFirst() {
+        long beforeUpdate = System.currentTimeMillis();
+        int updates = HISTORY_CAPACITY + 5;
+        for (int i = 0; i < updates; i++) {
+            weatherService.addDataPoint(IATA, PRESSURE.toString(), newDataPoint(700, 710, 700 + i % 50, 720, i));
+        }
+        weatherService.addDataPoint(IATA, WIND.toString(), newDataPoint(3, 7, 5.33, 10, 20));
+
+        List<DataPointSample> history = weatherService.getHistory(IATA, "pressure", null, beforeUpdate, Long.MAX_VALUE);
+
+        Assert.assertEquals(HISTORY_CAPACITY, history.size());
+        for (int i = 0; i < history.size(); i++) {
+            Assert.assertEquals(updates - HISTORY_CAPACITY + i, history.get(i).getDataPoint().getCount());
+            Assert.assertTrue(history.get(i).getTime() >= beforeUpdate);
+        }
+        Assert.assertEquals(1, weatherService.getHistory(IATA, "wind", null, beforeUpdate, Long.MAX_VALUE).size());
+        Assert.assertTrue(weatherService.getHistory(IATA, "humidity", null, beforeUpdate, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testAddDataPoint_concurrentWriters_historyEndsWithSnapshot() throws InterruptedException {
+        for (int round = 0; round < 100; round++) {
+            atmosphereRepository.clear();
+            historyRepository.clear();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+
+            for (int thread = 0; thread < 4; thread++) {
+                int count = thread;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        weatherService.addDataPoint(IATA, WIND.toString(), newDataPoint(3, 7, 5.33, 10, count));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            List<DataPointSample> history = historyRepository.find(IATA, WIND, HistoryResolution.RAW, 0, Long.MAX_VALUE);
+            Assert.assertEquals(4, history.size());
+            Assert.assertEquals(atmosphereRepository.find(IATA).getWind(), history.get(3).getDataPoint());
+        }
+    }
+
+    @Test
+    public void testAddDataPoint_airportDeletedMeanwhile_noHistoryLeft() throws InterruptedException {
+        AirportService airportService = new AirportService();
+        for (int round = 0; round < 20; round++) {
+            airportRepository.addAirport(IATA, 123, 345);
+            CountDownLatch started = new CountDownLatch(1);
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; ; i++) {
+                        weatherService.addDataPoint(IATA, WIND.toString(), newDataPoint(3, 7, 5.33, 10, i));
+                        started.countDown();
+                    }
+                } catch (WeatherException e) {
+                    // the airport is gone
+                }
+            });
+            writer.start();
+            started.await();
+            airportService.deleteAirport(IATA);
+            writer.join();
+
+            Assert.assertNull(atmosphereRepository.find(IATA));
+            Assert.assertTrue(historyRepository.find(IATA, WIND, HistoryResolution.RAW, 0, Long.MAX_VALUE).isEmpty());
+        }
+    }
+
+    @Test
+    public void testGetHistory_outsideRange_empty() {
+        weatherService.addDataPoint(IATA, WIND.toString(), newDataPoint(3, 7, 5.33, 10, 20));
+        long afterUpdate = System.currentTimeMillis() + 1;
+
+        Assert.assertTrue(weatherService.getHistory(IATA, "wind", null, afterUpdate, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testGetHistory_rollups() {
+        long hour = TimeUnit.HOURS.toMillis(400000);
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        historyRepository.record(IATA, WIND, hour, newDataPoint(5, 10, 10, 15, 1));
+        historyRepository.record(IATA, WIND, hour + 5 * minute, newDataPoint(15, 20, 20, 25, 3));
+        historyRepository.record(IATA, WIND, hour + 20 * minute, newDataPoint(25, 30, 30, 35, 2));
+
+        Assert.assertEquals(3, weatherService.getHistory(IATA, "wind", "1m", hour, hour + 60 * minute).size());
+
+        List<DataPointSample> quarters = weatherService.getHistory(IATA, "wind", "15m", hour, hour + 60 * minute);
+        Assert.assertEquals(2, quarters.size());
+        Assert.assertEquals(hour, quarters.get(0).getTime());
+        Assert.assertEquals(newDataPoint(13, 18, 17.5, 23, 4), quarters.get(0).getDataPoint());
+        Assert.assertEquals(hour + 15 * minute, quarters.get(1).getTime());
+        Assert.assertEquals(newDataPoint(25, 30, 30, 35, 2), quarters.get(1).getDataPoint());
+
+        List<DataPointSample> hours = weatherService.getHistory(IATA, "wind", "1h", hour + 30 * minute, hour + 60 * minute);
+        Assert.assertEquals(1, hours.size());
+        Assert.assertEquals(hour, hours.get(0).getTime());
+        Assert.assertEquals(6, hours.get(0).getDataPoint().getCount());
+        Assert.assertEquals(130 / 6.0, hours.get(0).getDataPoint().getMean(), 1e-9);
+    }
+
+    @Test
+    public void testGetHistory_invalidResolution_throwException() {
+        exception.expect(WeatherException.class);
+        exception.expect(hasCode(WEA_1003));
+
+        weatherService.getHistory(IATA, "wind", "1d", 1, 2);
+    }
+
+    @Test
+    public void testGetHistory_reversedRange_throwException() {
+        exception.expect(WeatherException.class);
+        exception.expect(hasCode(WEA_1003));
+
+        weatherService.getHistory(IATA, "wind", null, 2, 1);
+    }
+
+    @Test
+    public void testDataPoint_equal_sameHashCode() {
+        Assert.assertEquals(newDataPoint(3, 7, 5.5, 10, 20).hashCode(), newDataPoint(3, 7, 5.5, 10, 20).hashCode());
+        Assert.assertEquals(newDataPoint(3, 7, 0.0, 10, 20), newDataPoint(3, 7, -0.0, 10, 20));
+        Assert.assertEquals(newDataPoint(3, 7, 0.0, 10, 20).hashCode(), newDataPoint(3, 7, -0.0, 10, 20).hashCode());
+    }
+
+    /**
+     * Count the updates of each airport, running an action before each, on top of the configured repository
+     */
+    private class RecordingAtmosphereRepository implements AtmosphereRepository {
+        private final Map<String, Integer> updates = new ConcurrentHashMap<>();
+
+        private final Consumer<String> beforeUpdate;
+
+        RecordingAtmosphereRepository(Consumer<String> beforeUpdate) {
+            this.beforeUpdate = beforeUpdate;
+        }
+
+        @Override
+        public AtmosphericInformation find(String iataCode) {
+            return atmosphereRepository.find(iataCode);
+        }
+
+        @Override
+        public List<AtmosphericInformation> findAll() {
+            return atmosphereRepository.findAll();
+        }
+
+        @Override
+        public int countRecentlyUpdated() {
+            return atmosphereRepository.countRecentlyUpdated();
+        }
+
+        @Override
+        public void save(String iataCode, AtmosphericInformation information) {
+            atmosphereRepository.save(iataCode, information);
+        }
+
+        @Override
+        public AtmosphericInformation update(String iataCode, UnaryOperator<AtmosphericInformation> updater) {
+            updates.merge(iataCode, 1, Integer::sum);
+            beforeUpdate.accept(iataCode);
+            return atmosphereRepository.update(iataCode, updater);
+        }
+
+        @Override
+        public void clear() {
+            atmosphereRepository.clear();
+        }
+
+        @Override
+        public void delete(String iataCode) {
+            atmosphereRepository.delete(iataCode);
+        }
+    }
+
     private DataPoint newDataPoint(int first, int median, double mean, int last, int count) {
         DataPoint dataPoint = new DataPoint.Builder()
                 .withFirst(first)
@@ -1,7 +1,13 @@
 package com.crossover.trial.weather;
 
+import com.crossover.trial.weather.common.AirportHelper;
+import com.crossover.trial.weather.common.JSONHelper;
+import com.crossover.trial.weather.entity.AirportWeather;
 import com.crossover.trial.weather.entity.AtmosphericInformation;
 import com.crossover.trial.weather.entity.DataPoint;
+import com.crossover.trial.weather.entity.RouteWeather;
+import com.crossover.trial.weather.entity.WeatherEstimate;
+import com.crossover.trial.weather.entity.WeatherSummary;
 import com.crossover.trial.weather.exception.WeatherException;
 import com.crossover.trial.weather.repository.AirportRepository;
 import com.crossover.trial.weather.repository.AtmosphereRepository;
@@ -16,12 +22,16 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.crossover.trial.weather.common.DataPointType.*;
 import static com.crossover.trial.weather.configuration.AppConfig.CURRENT_REPOSITORY_TYPE;
+import static com.crossover.trial.weather.exception.ErrorCode.WEA_1001;
 import static com.crossover.trial.weather.exception.ErrorCode.WEA_1002;
+import static com.crossover.trial.weather.exception.ErrorCode.WEA_1003;
 import static com.crossover.trial.weather.service.WeatherService.DATA_SIZE_HEALTH;
 import static com.crossover.trial.weather.service.WeatherService.IATA_REQUEST_HEALTH;
 
@@ -92,6 +102,19 @@ public class WeatherServiceTest {
         Assert.assertTrue(iataRequests.get(IATA_CODES[3]) == 0);
     }
 
+    @Test
+    public void testGetHealth_dataSizeIgnoresDeletedAndOutdatedWeather() {
+        // BOS deleted, LCY last updated 25 hours ago
+        atmosphereRepository.delete(IATA_CODES[0]);
+        AtmosphericInformation outdated = new AtmosphericInformation().withDataPoint(PRESSURE, DATA_POINTS[2],
+                System.currentTimeMillis() - TimeUnit.HOURS.toMillis(25));
+        atmosphereRepository.save(IATA_CODES[2], outdated);
+
+        Map<String, Object> health = weatherService.getHealthStatus();
+
+        Assert.assertEquals(1, (int) health.get(DATA_SIZE_HEALTH));
+    }
+
     @Test
     public void testGetWeather_noRadius() {
         List<AtmosphericInformation> weather = weatherService.getAirportWeather(IATA_CODES[0], 0);
@@ -149,6 +172,234 @@ public class WeatherServiceTest {
         weatherService.getAirportWeather("NoAirport", 0);
     }
 
+    @Test
+    public void testGetWeatherSummary_noRadius() {
+        WeatherSummary summary = weatherService.getWeatherSummary(IATA_CODES[0], 0);
+
+        Assert.assertEquals(1, summary.getAirportCount());
+        Assert.assertEquals(1, summary.getReportingAirportCount());
+        Assert.assertEquals(DATA_POINTS[0], summary.getWind());
+        Assert.assertNull(summary.getTemperature());
+    }
+
+    @Test
+    public void testGetWeatherSummary_insideRadius_mergesWeightedByCount() {
+        // BOS reports 75 temperature observations, EWR 25
+        weatherService.addDataPoint(IATA_CODES[0], TEMPERATURE.toString(), newDataPoint(5, 7, 6.0, 11, 75));
+
+        double radius = 5594.5;
+        WeatherSummary summary = weatherService.getWeatherSummary(IATA_CODES[1], radius);
+
+        // BOS, EWR and STN are inside the radius, STN has no weather
+        Assert.assertEquals(3, summary.getAirportCount());
+        Assert.assertEquals(2, summary.getReportingAirportCount());
+        Assert.assertEquals(DATA_POINTS[0], summary.getWind());
+        Assert.assertNull(summary.getPressure());
+
+        DataPoint temperature = summary.getTemperature();
+        Assert.assertEquals((25 * 4.33 + 75 * 6.0) / 100, temperature.getMean(), 1e-9);
+        Assert.assertEquals(5, temperature.getFirst());
+        Assert.assertEquals(7, temperature.getSecond());
+        Assert.assertEquals(11, temperature.getThird());
+        Assert.assertEquals(100, temperature.getCount());
+        Assert.assertTrue(summary.getLastUpdateTime() > 0);
+    }
+
+    @Test
+    public void testGetWeatherSummary_noAirport_throwException() {
+        exception.expect(WeatherException.class);
+        exception.expect(ExceptionMatcher.hasCode(WEA_1002));
+        weatherService.getWeatherSummary("NoAirport", 100);
+    }
+
+    @Test
+    public void testGetPositionWeather_insideRadius_nearestFirst() {
+        // JFK, between EWR and BOS
+        List<AirportWeather> weather = weatherService.getPositionWeather(40.639751, -73.778925, 400);
+
+        Assert.assertEquals(2, weather.size());
+        Assert.assertEquals(IATA_CODES[1], weather.get(0).getIata());
+        Assert.assertEquals(DATA_POINTS[1], weather.get(0).getWeather().getTemperature());
+        Assert.assertEquals(IATA_CODES[0], weather.get(1).getIata());
+        Assert.assertTrue(weather.get(0).getDistance() < weather.get(1).getDistance());
+    }
+
+    @Test
+    public void testGetPositionWeather_outOfRange_throwException() {
+        exception.expect(WeatherException.class);
+        exception.expect(ExceptionMatcher.hasCode(WEA_1003));
+        weatherService.getPositionWeather(91, 0, 100);
+    }
+
+    @Test
+    public void testGetRouteWeather_inRouteOrder() {
+        List<RouteWeather> weather = weatherService.getRouteWeather(IATA_CODES[1], IATA_CODES[2], 200);
+
+        // EWR, BOS close to the route, then LCY. STN is in the corridor but has no weather
+        Assert.assertEquals(3, weather.size());
+        Assert.assertEquals(IATA_CODES[1], weather.get(0).getIata());
+        Assert.assertEquals(IATA_CODES[0], weather.get(1).getIata());
+        Assert.assertEquals(IATA_CODES[2], weather.get(2).getIata());
+        Assert.assertEquals(0, weather.get(0).getRouteDistance(), 1e-6);
+        Assert.assertTrue(weather.get(1).getOffRouteDistance() < 200);
+        Assert.assertEquals(5595, weather.get(2).getRouteDistance(), 1);
+    }
+
+    @Test
+    public void testGetRouteWeather_narrowCorridor_onlyEnds() {
+        List<RouteWeather> weather = weatherService.getRouteWeather(IATA_CODES[1], IATA_CODES[2], 10);
+
+        Assert.assertEquals(2, weather.size());
+        Assert.assertEquals(IATA_CODES[1], weather.get(0).getIata());
+        Assert.assertEquals(IATA_CODES[2], weather.get(1).getIata());
+    }
+
+    @Test
+    public void testGetRouteWeather_sameEnds_radiusAroundAirport() {
+        List<RouteWeather> weather = weatherService.getRouteWeather(IATA_CODES[1], IATA_CODES[1], 400);
+
+        Assert.assertEquals(2, weather.size());
+        Assert.assertEquals(IATA_CODES[1], weather.get(0).getIata());
+        Assert.assertEquals(0, weather.get(0).getOffRouteDistance(), 1e-6);
+        Assert.assertEquals(IATA_CODES[0], weather.get(1).getIata());
+        Assert.assertEquals(0, weather.get(1).getRouteDistance(), 1e-6);
+        Assert.assertEquals(322, weather.get(1).getOffRouteDistance(), 1);
+    }
+
+    @Test
+    public void testGetRouteWeather_antipodalEnds_throwException() {
+        airportRepository.addAirport("ANT", -40.6925, 105.831333);
+
+        exception.expect(WeatherException.class);
+        exception.expect(ExceptionMatcher.hasCode(WEA_1003));
+        weatherService.getRouteWeather(IATA_CODES[1], "ANT", 200);
+    }
+
+    @Test
+    public void testGetRouteWeather_negativeWidth_throwException() {
+        exception.expect(WeatherException.class);
+        exception.expect(ExceptionMatcher.hasCode(WEA_1003));
+        weatherService.getRouteWeather(IATA_CODES[1], IATA_CODES[2], -1);
+    }
+
+    @Test
+    public void testGetWeatherEstimate_inverseDistanceWeighted() {
+        DataPoint windOfEWR = newDataPoint(8, 10, 9.0, 12, 20);
+        weatherService.addDataPoint(IATA_CODES[1], WIND.toString(), windOfEWR);
+
+        // JFK, between EWR and BOS
+        double latitude = 40.639751;
+        double longitude = -73.778925;
+        WeatherEstimate estimate = weatherService.getWeatherEstimate(latitude, longitude, 2, TimeUnit.HOURS.toMillis(1));
+
+        double weightOfBOS = 1 / Math.pow(AirportHelper.calculateDistance(latitude, longitude, 42.364347, -71.005181), 2);
+        double weightOfEWR = 1 / Math.pow(AirportHelper.calculateDistance(latitude, longitude, 40.6925, -74.168667), 2);
+        Assert.assertEquals((weightOfBOS * 5.33 + weightOfEWR * 9.0) / (weightOfBOS + weightOfEWR),
+                estimate.getWind().getMean(), 1e-9);
+        Assert.assertEquals(DATA_POINTS[1].getMean(), estimate.getTemperature().getMean(), 1e-9);
+        // LCY is too far away to contribute
+        Assert.assertNull(estimate.getPressure());
+    }
+
+    @Test
+    public void testGetWeatherEstimate_atAirport_airportWeatherDominates() {
+        weatherService.addDataPoint(IATA_CODES[1], WIND.toString(), newDataPoint(8, 10, 9.0, 12, 20));
+
+        WeatherEstimate estimate = weatherService.getWeatherEstimate(40.6925, -74.168667, 2, TimeUnit.HOURS.toMillis(1));
+
+        Assert.assertEquals(9.0, estimate.getWind().getMean(), 1e-3);
+    }
+
+    @Test
+    public void testGetWeatherEstimate_ignoresOutdatedWeather() {
+        atmosphereRepository.save(IATA_CODES[1], new AtmosphericInformation().withDataPoint(WIND,
+                newDataPoint(8, 10, 9.0, 12, 20), System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+
+        WeatherEstimate estimate = weatherService.getWeatherEstimate(40.6925, -74.168667, 2, TimeUnit.HOURS.toMillis(1));
+
+        Assert.assertEquals(DATA_POINTS[0].getMean(), estimate.getWind().getMean(), 1e-9);
+        Assert.assertNull(estimate.getTemperature());
+    }
+
+    @Test
+    public void testGetWeatherEstimate_ignoresOutdatedPointTypeOfFreshAirport() {
+        long twoHoursAgo = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+        atmosphereRepository.save(IATA_CODES[1], new AtmosphericInformation()
+                .withDataPoint(WIND, newDataPoint(8, 10, 9.0, 12, 20), twoHoursAgo)
+                .withDataPoint(TEMPERATURE, newDataPoint(8, 10, 9.0, 12, 20), System.currentTimeMillis()));
+
+        WeatherEstimate estimate = weatherService.getWeatherEstimate(40.6925, -74.168667, 2, TimeUnit.HOURS.toMillis(1));
+
+        Assert.assertEquals(DATA_POINTS[0].getMean(), estimate.getWind().getMean(), 1e-9);
+        Assert.assertEquals(9.0, estimate.getTemperature().getMean(), 1e-3);
+    }
+
+    @Test
+    public void testGetNearestWeather_nearestFirstSkippingAirportsWithoutWeather() {
+        List<AirportWeather> nearest = weatherService.getNearestWeather(IATA_CODES[1], 3, null, null);
+
+        // EWR itself, BOS, then LCY as STN has no weather
+        Assert.assertEquals(3, nearest.size());
+        Assert.assertEquals(IATA_CODES[1], nearest.get(0).getIata());
+        Assert.assertEquals(0, nearest.get(0).getDistance(), 0);
+        Assert.assertEquals(IATA_CODES[0], nearest.get(1).getIata());
+        Assert.assertEquals(IATA_CODES[2], nearest.get(2).getIata());
+        Assert.assertEquals(DATA_POINTS[2], nearest.get(2).getWeather().getPressure());
+        Assert.assertTrue(nearest.get(1).getDistance() < nearest.get(2).getDistance());
+    }
+
+    @Test
+    public void testGetNearestWeather_filterPointTypesAndAge() {
+        // BOS wind is 2 hours old
+        atmosphereRepository.save(IATA_CODES[0], new AtmosphericInformation().withDataPoint(WIND, DATA_POINTS[0],
+                System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+        weatherService.addDataPoint(IATA_CODES[3], WIND.toString(), DATA_POINTS[0]);
+
+        List<AirportWeather> withWind = weatherService.getNearestWeather(IATA_CODES[1], 1, "wind", null);
+        Assert.assertEquals(IATA_CODES[0], withWind.get(0).getIata());
+
+        List<AirportWeather> withFreshWind = weatherService.getNearestWeather(IATA_CODES[1], 5, "wind",
+                TimeUnit.HOURS.toMillis(1));
+        Assert.assertEquals(1, withFreshWind.size());
+        Assert.assertEquals(IATA_CODES[3], withFreshWind.get(0).getIata());
+    }
+
+    @Test
+    public void testGetNearestWeather_outdatedPointTypeOfFreshAirport_skipped() {
+        long twoHoursAgo = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+        AtmosphericInformation information = new AtmosphericInformation()
+                .withDataPoint(WIND, DATA_POINTS[0], twoHoursAgo)
+                .withDataPoint(TEMPERATURE, DATA_POINTS[0], System.currentTimeMillis());
+        // the update time of each point type survives the json the FILE repository journals, not the json served
+        atmosphereRepository.save(IATA_CODES[0], JSONHelper.fromJson(
+                JSONHelper.toJson(information), AtmosphericInformation.class));
+        String served = new String(information.toJson(), StandardCharsets.UTF_8);
+        Assert.assertFalse(served.contains("updateTimes"));
+        Assert.assertFalse(served.contains("version"));
+
+        Assert.assertEquals(twoHoursAgo, atmosphereRepository.find(IATA_CODES[0]).getUpdateTime(WIND));
+        List<AirportWeather> withFreshWind = weatherService.getNearestWeather(IATA_CODES[1], 5, "wind",
+                TimeUnit.HOURS.toMillis(1));
+        Assert.assertTrue(withFreshWind.stream().noneMatch(weather -> weather.getIata().equals(IATA_CODES[0])));
+        List<AirportWeather> withFreshTemperature = weatherService.getNearestWeather(IATA_CODES[1], 5, "temperature",
+                TimeUnit.HOURS.toMillis(1));
+        Assert.assertTrue(withFreshTemperature.stream().anyMatch(weather -> weather.getIata().equals(IATA_CODES[0])));
+    }
+
+    @Test
+    public void testGetNearestWeather_invalidCount_throwException() {
+        exception.expect(WeatherException.class);
+        exception.expect(ExceptionMatcher.hasCode(WEA_1003));
+        weatherService.getNearestWeather(IATA_CODES[1], 0, null, null);
+    }
+
+    @Test
+    public void testGetNearestWeather_invalidPointType_throwException() {
+        exception.expect(WeatherException.class);
+        exception.expect(ExceptionMatcher.hasCode(WEA_1001));
+        weatherService.getNearestWeather(IATA_CODES[1], 1, "wind,fog", null);
+    }
+
     private void prepareAirport() {
         /**
          * Real distance from EWR to: